@@ -0,0 +1,87 @@
+// k6 负载测试：浏览商品 -> 加入购物车 -> 查看购物车 -> 下单 -> 支付或取消
+// 用于对比平台线程与虚拟线程两种执行模式的吞吐量和 p99 延迟，两次运行使用相同参数：
+//   k6 run -e BASE_URL=http://localhost:8080 --summary-export=platform.json loadtest/checkout.js
+//   k6 run -e BASE_URL=http://localhost:8080 --summary-export=virtual.json  loadtest/checkout.js
+// 每轮结束时处理掉本轮订单，预占与购物车不会在运行中累积：
+//   ORDER_ACTION=cancel（默认）取消订单并清空购物车，库存不变；
+//   ORDER_ACTION=pay 支付订单（会扣减库存），setup 以管理员身份把候选商品库存设为 STOCK
+import http from 'k6/http'
+import { check } from 'k6'
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080'
+const USERS = parseInt(__ENV.USERS || '50')
+const ORDER_ACTION = __ENV.ORDER_ACTION || 'cancel'
+const STOCK = parseInt(__ENV.STOCK || '10000000')
+
+export const options = {
+  scenarios: {
+    checkout: {
+      executor: 'constant-vus',
+      vus: USERS,
+      duration: __ENV.DURATION || '2m'
+    }
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max']
+}
+
+// 每个虚拟用户注册并登录一个独立账号，取第一页商品作为下单候选
+export function setup() {
+  const tokens = []
+  for (let i = 0; i < USERS; i++) {
+    const credentials = { username: `load-${Date.now()}-${i}`, password: 'load-test' }
+    http.post(`${BASE_URL}/api/users/register`, JSON.stringify(credentials), jsonParams())
+    const res = http.post(`${BASE_URL}/api/users/login`, JSON.stringify(credentials), jsonParams())
+    tokens.push(res.json('data.token'))
+  }
+  const products = http.get(`${BASE_URL}/api/products?size=20`).json('data.items')
+  if (ORDER_ACTION === 'pay') {
+    seedStock(products)
+  }
+  return { tokens, productIds: products.map(p => p.id) }
+}
+
+// 支付模式每轮扣减一件库存，运行前把候选商品库存补足，避免中途因库存耗尽变成失败请求
+function seedStock(products) {
+  const admin = { username: __ENV.ADMIN_USER || 'root', password: __ENV.ADMIN_PASSWORD || '041018' }
+  const token = http.post(`${BASE_URL}/api/users/login`, JSON.stringify(admin), jsonParams()).json('data.token')
+  for (const product of products) {
+    const res = http.put(`${BASE_URL}/api/products/${product.id}`,
+      JSON.stringify(Object.assign({}, product, { stock: STOCK })), jsonParams(token))
+    check(res, { 'seed stock': r => r.status === 200 })
+  }
+}
+
+export default function (data) {
+  const params = jsonParams(data.tokens[(__VU - 1) % data.tokens.length])
+  const productId = data.productIds[Math.floor(Math.random() * data.productIds.length)]
+
+  check(http.get(`${BASE_URL}/api/products?size=20`), { 'list products': r => r.status === 200 })
+  check(http.post(`${BASE_URL}/api/cart/add`, JSON.stringify({ productId, quantity: 1 }), params),
+    { 'add to cart': r => r.status === 200 })
+  check(http.get(`${BASE_URL}/api/cart`, params), { 'get cart': r => r.status === 200 })
+  check(http.get(`${BASE_URL}/api/orders`, params), { 'list orders': r => r.status === 200 })
+  const created = http.post(`${BASE_URL}/api/orders/create`, null, params)
+  if (!check(created, { 'create order': r => r.status === 200 })) {
+    return
+  }
+
+  const orderId = created.json('data.id')
+  if (ORDER_ACTION === 'pay') {
+    // 支付成功后服务端清空购物车
+    check(http.post(`${BASE_URL}/api/orders/pay`, JSON.stringify({ orderId }), params),
+      { 'pay order': r => r.status === 200 })
+  } else {
+    check(http.put(`${BASE_URL}/api/orders/${orderId}/cancel`, null, params),
+      { 'cancel order': r => r.status === 200 })
+    check(http.put(`${BASE_URL}/api/cart/items`, JSON.stringify({ items: [{ productId, quantity: 0 }] }), params),
+      { 'clear cart': r => r.status === 200 })
+  }
+}
+
+function jsonParams(token) {
+  const headers = { 'Content-Type': 'application/json' }
+  if (token) {
+    headers.Authorization = `Bearer ${token}`
+  }
+  return { headers }
+}
@@ -0,0 +1,24 @@
+package com.shop.bench;
+
+import java.math.BigDecimal;
+
+import com.shop.model.Product;
+
+/**
+ * 基准测试数据构造
+ */
+final class BenchData {
+
+    private BenchData() {
+    }
+
+    static Product product(Long id, String name, double price, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(BigDecimal.valueOf(price));
+        product.setStock(stock);
+        product.setImgUrl("/api/files/images/" + id + ".png");
+        return product;
+    }
+}
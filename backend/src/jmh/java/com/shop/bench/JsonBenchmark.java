@@ -0,0 +1,55 @@
+package com.shop.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.dto.ResponseDTO;
+import com.shop.model.Product;
+
+/**
+ * 商品列表响应（ResponseDTO<List<Product>>）的 Jackson 序列化基准
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private ResponseDTO<List<Product>> response;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            products.add(BenchData.product((long) i, "商品-" + i, 99.9 + i, 1000));
+        }
+        response = ResponseDTO.ok(products);
+    }
+
+    @Benchmark
+    public byte[] serializeProductList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
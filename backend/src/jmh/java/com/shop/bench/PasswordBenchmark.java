@@ -0,0 +1,50 @@
+package com.shop.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shop.util.PasswordUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * PasswordUtil 密码校验基准（BCrypt，单次耗时为毫秒级）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordBenchmark {
+
+    private PasswordUtil passwordUtil;
+    private String hashedPassword;
+
+    @Setup
+    public void setup() {
+        passwordUtil = new PasswordUtil(10, 0, 64, new SimpleMeterRegistry());
+        hashedPassword = passwordUtil.hashPassword("bench-password");
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordUtil.shutdown();
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return passwordUtil.verifyPassword("bench-password", hashedPassword);
+    }
+}
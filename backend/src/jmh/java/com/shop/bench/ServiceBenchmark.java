@@ -0,0 +1,118 @@
+package com.shop.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.shop.ShopApplication;
+import com.shop.model.CartItem;
+import com.shop.model.Order;
+import com.shop.model.Product;
+import com.shop.model.User;
+import com.shop.repository.ProductRepository;
+import com.shop.repository.UserRepository;
+import com.shop.service.CartService;
+import com.shop.service.OrderService;
+
+/**
+ * 购物车与订单服务基准
+ *
+ * 在 H2 内存数据库上启动完整的 Spring 上下文（不启动 Web 容器，数据源通过命令行参数覆盖 application.yml），
+ * 下单与支付在回滚事务中执行，保证每次调用的数据状态一致。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int cartSize;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private OrderService orderService;
+    private TransactionTemplate transactionTemplate;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(ShopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--app.inventory.sweep-interval=3600000",
+                        "--app.order.expiry-sweep-interval=3600000",
+                        "--logging.level.com.shop=WARN",
+                        "--logging.level.org.springframework=WARN");
+
+        cartService = context.getBean(CartService.class);
+        orderService = context.getBean(OrderService.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        User user = new User();
+        user.setUsername("bench-user");
+        user.setPassword("bench");
+        userId = context.getBean(UserRepository.class).save(user).getId();
+
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        for (int i = 1; i <= cartSize; i++) {
+            Product product = productRepository.save(BenchData.product(null, "商品-" + i, 10.0 + i, 1_000_000));
+            cartService.addItem(userId, product.getId(), 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CartItem> getActiveCartItems() {
+        return cartService.getActiveCartItems(userId);
+    }
+
+    @Benchmark
+    public Order createPendingOrder() {
+        return transactionTemplate.execute(status -> {
+            Order order = orderService.createPendingOrder(userId);
+            status.setRollbackOnly();
+            return order;
+        });
+    }
+
+    @Benchmark
+    public Order checkout() {
+        return transactionTemplate.execute(status -> {
+            Order order = orderService.createPendingOrder(userId);
+            orderService.markPaidAndFulfillCart(order.getId(), userId);
+            status.setRollbackOnly();
+            return order;
+        });
+    }
+}
@@ -0,0 +1,356 @@
+package com.shop.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.shop.model.Cart;
+import com.shop.model.CartItem;
+import com.shop.repository.CartItemRepository;
+import com.shop.repository.CartRepository;
+import com.shop.util.Futures;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 购物车内存存储（写回式）
+ *
+ * 功能：
+ * 1. 活跃用户的购物车按用户 ID 保存在内存中，首次访问时从数据库加载，加购、改数量、删除只修改内存。
+ *    每种商品在购物车中只保留一行。
+ * 2. 购物车项 ID 在内存中分配（启动后从 cart_item 的最大 ID 继续递增），前端接口保持不变。
+ * 3. 被修改的购物车标记为脏，定时任务把脏购物车合并成批次写回 cart_item（按购物车整体替换），
+ *    同一购物车在一个周期内的多次修改只写一次。
+ * 4. 应用正常关闭时写回全部脏购物车；进程异常退出最多丢失一个写回周期内的修改。
+ * 5. 读取返回加锁复制的快照，结算看到的是某一时刻完整一致的购物车内容。
+ * 6. 长时间未访问且已写回的购物车从内存中移除。
+ *
+ * 仅适用于单实例部署：多个实例同时缓存同一用户的购物车会互相覆盖。
+ */
+@Component
+public class CartStore implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+    private final long idleTtlNanos;
+    private final Timer flushTimer;
+
+    private final ConcurrentHashMap<Long, CartState> carts = new ConcurrentHashMap<>();   // 用户 ID -> 购物车
+    private final ConcurrentHashMap<Long, CompletableFuture<CartState>> loading = new ConcurrentHashMap<>();   // 正在加载的购物车
+    private final AtomicLong itemIds = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public CartStore(
+            CartRepository cartRepository,
+            CartItemRepository cartItemRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.cart.flush-batch-size:500}") int flushBatchSize,
+            @Value("${app.cart.idle-ttl:30m}") Duration idleTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.idleTtlNanos = idleTtl.toNanos();
+
+        this.flushTimer = Timer.builder("cart.flush")
+                .description("购物车写回耗时")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.size", carts, Map::size)
+                .description("内存中的购物车数")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.dirty", carts, map -> map.values().stream().filter(CartState::isDirty).count())
+                .description("尚未写回数据库的购物车数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动时从 cart_item 的最大 ID 初始化购物车项 ID 计数
+     * 在开始接收请求之前执行：请求线程分配 ID 时不再访问数据库，
+     * 避免持有连接的请求与等待连接的初始化线程互相等待
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        itemIds.set(cartItemRepository.maxId());
+    }
+
+    /**
+     * 读取用户购物车的快照（购物车项为副本，修改不会影响存储）
+     *
+     * @param userId 用户 ID
+     * @return 购物车项列表
+     */
+    public List<CartItem> snapshot(Long userId) {
+        return read(userId, CartState::copyItems);
+    }
+
+    /**
+     * 在购物车锁内读取
+     */
+    public <T> T read(Long userId, Function<CartState, T> reader) {
+        while (true) {
+            CartState state = stateOf(userId);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.touch();
+                return reader.apply(state);
+            }
+        }
+    }
+
+    /**
+     * 在购物车锁内修改，修改后购物车标记为脏，等待写回
+     */
+    public <T> T update(Long userId, Function<CartState, T> mutation) {
+        while (true) {
+            CartState state = stateOf(userId);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.touch();
+                T result = mutation.apply(state);
+                state.version++;
+                return result;
+            }
+        }
+    }
+
+    /**
+     * 分配新的购物车项 ID
+     */
+    public long nextItemId() {
+        return itemIds.incrementAndGet();
+    }
+
+    /**
+     * 定时写回脏购物车，并移除长时间未访问的购物车
+     */
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushTimer.record(this::flushDirty);
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 应用关闭时写回全部脏购物车
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        long remaining = carts.values().stream().filter(CartState::isDirty).count();
+        if (remaining > 0) {
+            log.error("{} carts could not be flushed before shutdown", remaining);
+        }
+    }
+
+    // ===== 内部实现 =====
+
+    /**
+     * 获取内存中的购物车，不存在时从数据库加载
+     * 加载在 map 外进行（不占用 ConcurrentHashMap 的桶锁）；同一用户的并发加载合并为一次，
+     * 避免首次访问时重复创建 cart 行
+     */
+    private CartState stateOf(Long userId) {
+        CartState state = carts.get(userId);
+        if (state != null) {
+            return state;
+        }
+
+        CompletableFuture<CartState> mine = new CompletableFuture<>();
+        CompletableFuture<CartState> inFlight = loading.putIfAbsent(userId, mine);
+        if (inFlight != null) {
+            return Futures.join(inFlight);
+        }
+        try {
+            // 再次检查：其他线程可能刚加载完成并移除了进行中的标记
+            state = carts.get(userId);
+            if (state == null) {
+                CartState loaded = load(userId);
+                CartState existing = carts.putIfAbsent(userId, loaded);
+                state = existing != null ? existing : loaded;
+            }
+            mine.complete(state);
+            return state;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(userId, mine);
+        }
+    }
+
+    private CartState load(Long userId) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseGet(() -> {
+                    Cart created = new Cart();
+                    created.setUserId(userId);
+                    return cartRepository.save(created);
+                });
+        // 保存副本，避免内存中的对象仍受 JPA 持久化上下文管理；
+        // 早期数据中同一商品可能有多行，加载时合并到第一行并标记为脏，下次写回时去重
+        CartState state = new CartState(cart.getId());
+        for (CartItem item : cartItemRepository.findByCartId(cart.getId())) {
+            CartItem existing = state.findByProduct(item.getProductId());
+            if (existing != null) {
+                existing.setQuantity(existing.getQuantity() + item.getQuantity());
+                state.version++;
+            } else {
+                state.items.put(item.getId(), copyOf(item));
+            }
+        }
+        return state;
+    }
+
+    private void flushDirty() {
+        List<CartState> dirty = carts.values().stream().filter(CartState::isDirty).toList();
+        for (int from = 0; from < dirty.size(); from += flushBatchSize) {
+            List<CartState> batch = dirty.subList(from, Math.min(from + flushBatchSize, dirty.size()));
+
+            // 在各购物车锁内复制内容并记录版本号
+            Map<Long, List<CartItem>> itemsByCart = new HashMap<>();
+            Map<CartState, Long> versions = new HashMap<>();
+            for (CartState state : batch) {
+                synchronized (state) {
+                    itemsByCart.put(state.cartId, state.copyItems());
+                    versions.put(state, state.version);
+                }
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> cartItemRepository.replaceItems(itemsByCart));
+                versions.forEach(CartStore::markFlushed);
+            } catch (RuntimeException e) {
+                // 整批失败时逐个购物车写回，失败的购物车保持为脏，不影响同批和后续批次
+                log.warn("Failed to flush batch of {} carts, retrying one by one: {}", batch.size(), e.getMessage());
+                versions.forEach((state, version) -> flushOne(state, itemsByCart.get(state.cartId), version));
+            }
+        }
+    }
+
+    private void flushOne(CartState state, List<CartItem> items, long version) {
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> cartItemRepository.replaceItems(Map.of(state.cartId, items)));
+            markFlushed(state, version);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush cart {}, will retry: {}", state.cartId, e.getMessage());
+        }
+    }
+
+    /**
+     * 记录已写回的版本；写回期间又被修改的购物车仍保持为脏
+     */
+    private static void markFlushed(CartState state, long version) {
+        synchronized (state) {
+            state.flushedVersion = Math.max(state.flushedVersion, version);
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        carts.forEach((userId, state) -> {
+            synchronized (state) {
+                if (!state.isDirty() && now - state.lastAccess > idleTtlNanos) {
+                    state.evicted = true;
+                    carts.remove(userId, state);
+                }
+            }
+        });
+    }
+
+    /**
+     * 复制购物车项（返回给调用方的对象不能是存储中的实例，否则会在锁外被读取或修改）
+     */
+    public static CartItem copyOf(CartItem item) {
+        CartItem copy = new CartItem();
+        copy.setId(item.getId());
+        copy.setCartId(item.getCartId());
+        copy.setProductId(item.getProductId());
+        copy.setQuantity(item.getQuantity());
+        return copy;
+    }
+
+    /**
+     * 单个用户的购物车，所有字段在 synchronized (this) 内访问
+     */
+    public static final class CartState {
+        private final Long cartId;
+        private final Map<Long, CartItem> items = new LinkedHashMap<>();   // 购物车项 ID -> 购物车项
+        private long version;          // 每次修改递增
+        private long flushedVersion;   // 已写回数据库的版本
+        private long lastAccess = System.nanoTime();
+        private boolean evicted;
+
+        private CartState(Long cartId) {
+            this.cartId = cartId;
+        }
+
+        public Long getCartId() {
+            return cartId;
+        }
+
+        public Map<Long, CartItem> items() {
+            return items;
+        }
+
+        /**
+         * 查找指定商品所在的购物车项，不存在时返回 null
+         */
+        public CartItem findByProduct(Long productId) {
+            for (CartItem item : items.values()) {
+                if (item.getProductId().equals(productId)) {
+                    return item;
+                }
+            }
+            return null;
+        }
+
+        private List<CartItem> copyItems() {
+            List<CartItem> copies = new ArrayList<>(items.size());
+            for (CartItem item : items.values()) {
+                copies.add(copyOf(item));
+            }
+            return copies;
+        }
+
+        private synchronized boolean isDirty() {
+            return version != flushedVersion;
+        }
+
+        private void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
+}
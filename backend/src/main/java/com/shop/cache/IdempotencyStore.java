@@ -0,0 +1,128 @@
+package com.shop.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shop.exception.BusinessException;
+import com.shop.util.Futures;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 幂等键存储（进程内）
+ *
+ * 功能：
+ * 1. 客户端在请求头 Idempotency-Key 中携带幂等键，同一键的重复请求直接返回首次执行的结果。
+ * 2. 同一键的并发请求合并为一次执行，其余请求等待同一结果。
+ * 3. 执行失败（抛出异常）时不保存结果，客户端可用同一键重试；等待中的请求收到相同的异常。
+ * 4. 同一键用于不同请求参数时拒绝执行。
+ * 5. 已完成的条目数量有上限，并在 TTL 后过期；执行中的条目单独保存，不会被淘汰，
+ *    保证同一键的并发请求始终合并到同一次执行。
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final Cache<String, Entry> entries;                                          // 已完成的执行结果
+    private final ConcurrentHashMap<String, Entry> inFlight = new ConcurrentHashMap<>();   // 执行中的条目
+    private final Counter replayedCounter;
+
+    public IdempotencyStore(
+            @Value("${app.idempotency.max-size:100000}") long maxSize,
+            @Value("${app.idempotency.ttl:24h}") Duration ttl,
+            MeterRegistry meterRegistry
+    ) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "idempotency");
+        this.replayedCounter = Counter.builder("idempotency.replayed")
+                .description("按幂等键直接返回已有结果（或合并到进行中执行）的请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 按幂等键执行操作
+     *
+     * @param scope       作用域（如操作名 + 用户 ID），不同作用域的相同键互不影响
+     * @param key         幂等键，为空时直接执行
+     * @param fingerprint 请求参数摘要，同一键携带不同参数时拒绝执行
+     * @param action      实际操作
+     * @return 首次执行的结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, String key, Object fingerprint, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("Idempotency-Key 长度不能超过 " + MAX_KEY_LENGTH);
+        }
+
+        String cacheKey = scope + ":" + key;
+        Entry completed = entries.getIfPresent(cacheKey);
+        if (completed != null) {
+            return (T) replay(completed, fingerprint);
+        }
+
+        Entry mine = new Entry(fingerprint, new CompletableFuture<>());
+        Entry existing = inFlight.putIfAbsent(cacheKey, mine);
+        if (existing != null) {
+            return (T) replay(existing, fingerprint);
+        }
+
+        // 首次检查之后、登记之前，其他请求可能刚好执行完成并移出执行中条目
+        completed = entries.getIfPresent(cacheKey);
+        if (completed != null) {
+            inFlight.remove(cacheKey, mine);
+            try {
+                Object result = replay(completed, fingerprint);
+                mine.result().complete(result);
+                return (T) result;
+            } catch (RuntimeException e) {
+                mine.result().completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            T result = action.get();
+            mine.result().complete(result);
+            // 先放入结果缓存再移出执行中条目，两处之间不存在查不到的窗口
+            entries.put(cacheKey, mine);
+            inFlight.remove(cacheKey, mine);
+            return result;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(cacheKey, mine);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 返回已有条目的结果（进行中时等待），参数不一致时拒绝
+     */
+    private Object replay(Entry entry, Object fingerprint) {
+        if (!Objects.equals(entry.fingerprint(), fingerprint)) {
+            throw new BusinessException("Idempotency-Key 已用于其他请求");
+        }
+        replayedCounter.increment();
+        return Futures.join(entry.result());
+    }
+
+    private record Entry(Object fingerprint, CompletableFuture<Object> result) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.shop.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 热点图片缓存（堆外内存）
+ *
+ * 功能：
+ * 1. 将常被访问的图片文件内容读入 direct ByteBuffer，后续请求直接从内存写出，不再读磁盘。
+ * 2. 总字节数不超过配置的预算，超出时按 Caffeine 的 W-TinyLFU 策略（兼顾访问频率与最近访问）淘汰；
+ *    超过单文件大小上限的图片不缓存。
+ * 3. 缓存键包含文件路径、大小和修改时间，文件变化后旧内容不会再被命中。
+ * 4. 命中率与常驻字节数通过 Micrometer 暴露（image.cache.hit.ratio / image.cache.resident.bytes）。
+ *
+ * 默认关闭；开启时 JVM 的 -XX:MaxDirectMemorySize 需大于 max-bytes。
+ * 被淘汰的缓冲区由 GC 回收，正在写出的请求持有的副本不受影响。
+ */
+@Component
+public class ImageBlobCache {
+
+    private final long maxFileBytes;
+    private final Cache<Key, ByteBuffer> blobs;   // 为 null 表示未启用缓存
+
+    public ImageBlobCache(
+            @Value("${app.cache.image.enabled:false}") boolean enabled,
+            @Value("${app.cache.image.max-bytes:64MB}") DataSize maxBytes,
+            @Value("${app.cache.image.max-file-size:1MB}") DataSize maxFileSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxFileBytes = maxFileSize.toBytes();
+        if (!enabled) {
+            this.blobs = null;
+            return;
+        }
+        this.blobs = Caffeine.newBuilder()
+                .maximumWeight(maxBytes.toBytes())
+                .weigher((Key key, ByteBuffer buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, blobs, "image.blobs");
+        Gauge.builder("image.cache.hit.ratio", blobs, cache -> cache.stats().hitRate())
+                .description("图片缓存命中率")
+                .register(meterRegistry);
+        Gauge.builder("image.cache.resident.bytes", blobs,
+                        cache -> cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("图片缓存占用的堆外内存字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取文件内容，未命中时从磁盘读入并缓存
+     *
+     * @param file         文件路径
+     * @param size         文件大小
+     * @param lastModified 文件修改时间（毫秒）
+     * @return 只读的文件内容副本（position 为 0）；未启用缓存或文件超过大小上限时返回 null
+     */
+    public ByteBuffer get(Path file, long size, long lastModified) {
+        if (blobs == null || size > maxFileBytes) {
+            return null;
+        }
+        ByteBuffer buffer = blobs.get(new Key(file, size, lastModified), key -> load(key.file(), (int) size));
+        return buffer.duplicate();
+    }
+
+    private static ByteBuffer load(Path file, int size) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (buffer.hasRemaining()) {
+            throw new UncheckedIOException(new IOException("文件在读取过程中被截断: " + file));
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    private record Key(Path file, long size, long lastModified) {
+    }
+}
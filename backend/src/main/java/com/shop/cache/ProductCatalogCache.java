@@ -0,0 +1,139 @@
+package com.shop.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shop.model.Product;
+import com.shop.util.Transactions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 商品目录缓存（进程内读穿缓存）
+ *
+ * 功能：
+ * 1. 缓存商品列表、单个商品和搜索结果，避免每次页面访问都全表扫描。
+ * 2. 容量有上限，并按 TTL 过期，超出容量时按 Caffeine 的淘汰策略移除。
+ * 3. 商品或库存发生写操作时同步失效；若处于事务中，提交后再失效一次，
+ *    防止并发读在提交前把旧数据重新写回缓存。
+ * 4. 命中、未命中、淘汰次数通过 Micrometer 暴露（cache.gets / cache.evictions 等）。
+ * 5. 缓存中保存的是与持久化上下文脱离的商品副本，每次读取再返回新的副本：
+ *    调用方修改返回的对象（或它仍被某个 EntityManager 管理）都不会改变缓存内容。
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final String ALL_KEY = "all";
+    private static final String SEARCH_PREFIX = "search:";
+    private static final String PAGE_PREFIX = "page:";
+
+    private final Cache<Long, Product> productsById;    // 单个商品缓存
+    private final Cache<String, List<Product>> lists;   // 商品列表与搜索结果缓存
+
+    public ProductCatalogCache(
+            @Value("${app.cache.product.max-size:10000}") long maxSize,
+            @Value("${app.cache.product.ttl:60s}") Duration ttl,
+            MeterRegistry meterRegistry
+    ) {
+        this.productsById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize / 10))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, productsById, "product.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, lists, "product.lists");
+    }
+
+    /**
+     * 获取全部商品，未命中时调用 loader 加载
+     */
+    public List<Product> getAll(Supplier<List<Product>> loader) {
+        return copyAll(lists.get(ALL_KEY, key -> copyAll(loader.get())));
+    }
+
+    /**
+     * 获取搜索结果，未命中时调用 loader 加载
+     *
+     * @param query 已去除首尾空白的关键词
+     */
+    public List<Product> search(String query, Function<String, List<Product>> loader) {
+        return copyAll(lists.get(SEARCH_PREFIX + query.toLowerCase(), key -> copyAll(loader.apply(query))));
+    }
+
+    /**
+     * 获取一页键集分页结果，未命中时调用 loader 加载
+     *
+     * @param query   关键词（为空表示不过滤）
+     * @param afterId 游标（上一页最后一条的 ID）
+     * @param limit   本次查询的行数上限
+     */
+    public List<Product> page(String query, long afterId, int limit, Supplier<List<Product>> loader) {
+        String key = PAGE_PREFIX + afterId + ":" + limit + ":" + (query == null ? "" : query.toLowerCase());
+        return copyAll(lists.get(key, k -> copyAll(loader.get())));
+    }
+
+    /**
+     * 根据 ID 获取商品，未命中时调用 loader 加载（不存在的商品不缓存）
+     */
+    public Optional<Product> getById(Long id, Function<Long, Optional<Product>> loader) {
+        Product cached = productsById.get(id, key -> loader.apply(key).map(ProductCatalogCache::copy).orElse(null));
+        return Optional.ofNullable(cached).map(ProductCatalogCache::copy);
+    }
+
+    /**
+     * 使全部缓存失效
+     * 立即清空；如果当前存在事务，则在事务结束后再清空一次
+     */
+    public void invalidateAll() {
+        Transactions.nowAndAfterCompletion(this::clear);
+    }
+
+    /**
+     * 使指定商品及全部列表缓存失效（其他商品的单个缓存保留）
+     * 用于只有少数商品变化的场景（如支付扣减库存），事务中的处理方式同 invalidateAll
+     *
+     * @param ids 发生变化的商品 ID
+     */
+    public void invalidateProducts(Collection<Long> ids) {
+        List<Long> copy = List.copyOf(ids);
+        Transactions.nowAndAfterCompletion(() -> {
+            productsById.invalidateAll(copy);
+            lists.invalidateAll();
+        });
+    }
+
+    private static List<Product> copyAll(List<Product> products) {
+        return products.stream().map(ProductCatalogCache::copy).toList();
+    }
+
+    private static Product copy(Product product) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setPrice(product.getPrice());
+        copy.setStock(product.getStock());
+        copy.setImgUrl(product.getImgUrl());
+        return copy;
+    }
+
+    private void clear() {
+        productsById.invalidateAll();
+        lists.invalidateAll();
+    }
+}
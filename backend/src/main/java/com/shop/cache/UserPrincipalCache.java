@@ -0,0 +1,56 @@
+package com.shop.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shop.dto.UserPrincipal;
+import com.shop.util.Transactions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 登录用户身份缓存（按用户名）
+ *
+ * 认证拦截器每次请求都需要确认用户存在并获取 ID、角色，
+ * 缓存后同一用户的后续请求不再查询 users 表。删除用户时需调用 evict（事务提交后才最终生效）。
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final Cache<String, UserPrincipal> principals;
+
+    public UserPrincipalCache(
+            @Value("${app.cache.principal.max-size:10000}") long maxSize,
+            @Value("${app.cache.principal.ttl:5m}") Duration ttl,
+            MeterRegistry meterRegistry
+    ) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "user.principal");
+    }
+
+    /**
+     * 获取用户身份，未命中时调用 loader 加载（不存在的用户不缓存）
+     */
+    public Optional<UserPrincipal> get(String username, Function<String, Optional<UserPrincipal>> loader) {
+        return Optional.ofNullable(principals.get(username, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * 移除指定用户的缓存
+     * 在事务中调用时，事务结束后再移除一次，防止提交前并发请求读到旧数据并重新写入缓存
+     */
+    public void evict(String username) {
+        Transactions.nowAndAfterCompletion(() -> principals.invalidate(username));
+    }
+}
@@ -1,8 +1,8 @@
 package com.shop.config;
 
-import at.favre.lib.crypto.bcrypt.BCrypt;
 import com.shop.model.User;
 import com.shop.repository.UserRepository;
+import com.shop.util.PasswordUtil;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,7 +15,7 @@ public class DataInitializer {
      * CommandLineRunner 会在 Spring Boot 启动后执行 run 方法
      */
     @Bean
-    public CommandLineRunner initAdminUser(UserRepository userRepository) {
+    public CommandLineRunner initAdminUser(UserRepository userRepository, PasswordUtil passwordUtil) {
         return args -> {
             String adminUsername = "root"; // 管理员用户名
 
@@ -28,11 +28,8 @@ public class DataInitializer {
             User admin = new User();
             admin.setUsername(adminUsername);
 
-            // 使用 BCrypt 哈希算法加密密码
-            String hashedPassword = BCrypt.withDefaults().hashToString(
-                    12,                  // 加密强度，值越大越安全但耗时越长
-                    "041018".toCharArray() // 明文密码
-            );
+            // 使用 BCrypt 哈希算法加密密码（强度取自 app.security.password-encoder-strength）
+            String hashedPassword = passwordUtil.hashPassword("041018");
             admin.setPassword(hashedPassword);
 
             admin.setRole("ADMIN"); // 设置角色为管理员
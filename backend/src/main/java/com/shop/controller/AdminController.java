@@ -1,7 +1,9 @@
 package com.shop.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -9,15 +11,16 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.shop.dto.ResponseDTO;
-import com.shop.model.Order;
 import com.shop.model.Product;
 import com.shop.model.User;
 import com.shop.repository.UserRepository;
 import com.shop.service.OrderService;
 import com.shop.service.ProductService;
+import com.shop.service.UserService;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -25,25 +28,36 @@ public class AdminController {
     private final ProductService productService;
     private final OrderService orderService;
     private final UserRepository userRepository;
+    private final UserService userService;
 
     public AdminController(
             ProductService productService,
             OrderService orderService,
-            UserRepository userRepository
+            UserRepository userRepository,
+            UserService userService
     ) {
         this.productService = productService;
         this.orderService = orderService;
         this.userRepository = userRepository;
+        this.userService = userService;
     }
 
     /**
-     * 查询所有商品（管理员视角）
+     * 查询商品（管理员视角）
+     * 未传 cursor 和 size 时返回全部商品，否则返回游标分页结果
      *
-     * @return 商品列表
+     * @param cursor 上一页返回的 nextCursor
+     * @param size   每页条数
+     * @return 商品列表或分页结果
      */
     @GetMapping("/products")
-    public ResponseDTO<List<Product>> listProducts() {
-        return ResponseDTO.ok(productService.listAll());
+    public ResponseDTO<?> listProducts(
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (cursor == null && size == null) {
+            return ResponseDTO.ok(productService.listAll());
+        }
+        return ResponseDTO.ok(productService.listPage(cursor, size));
     }
 
     /**
@@ -82,13 +96,31 @@ public class AdminController {
     }
 
     /**
-     * 查询所有订单（管理员视角）
+     * 查询订单（管理员视角）
+     * 未传任何参数时返回全部订单（兼容旧客户端），否则按条件返回游标分页结果
      *
-     * @return 订单列表
+     * @param status 订单状态
+     * @param from   创建时间下限（含），ISO 格式，如 2024-01-01T00:00:00
+     * @param to     创建时间上限（不含）
+     * @param userId 下单用户 ID
+     * @param cursor 上一页返回的 nextCursor
+     * @param size   每页条数
+     * @return 订单列表或分页结果
      */
     @GetMapping("/orders")
-    public ResponseDTO<List<Order>> listOrders() {
-        return ResponseDTO.ok(orderService.listAllOrders());
+    public ResponseDTO<?> listOrders(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (status == null && from == null && to == null && userId == null && cursor == null && size == null) {
+            return ResponseDTO.ok(orderService.listAllOrders());
+        }
+        return ResponseDTO.ok(orderService.listOrdersPage(status, from, to, userId, cursor, size));
     }
 
     /**
@@ -123,10 +155,7 @@ public class AdminController {
      */
     @DeleteMapping("/users/{userId}")
     public ResponseDTO<Void> deleteUser(@PathVariable Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new RuntimeException("用户不存在");
-        }
-        userRepository.deleteById(userId);
+        userService.deleteById(userId);
         return ResponseDTO.ok(null);
     }
 }
@@ -1,5 +1,6 @@
 package com.shop.controller;
 
+import com.shop.dto.UserPrincipal;
 import com.shop.model.User;
 import com.shop.service.UserService;
 
@@ -24,10 +25,15 @@ public abstract class BaseController {
      * @return 用户 ID
      */
     protected Long getCurrentUserId(HttpServletRequest request) {
+        // 优先使用认证拦截器已解析的用户身份
+        UserPrincipal principal = (UserPrincipal) request.getAttribute("principal");
+        if (principal != null) {
+            return principal.id();
+        }
         String username = (String) request.getAttribute("username");
-        User user = userService.findByUsername(username)
+        return userService.resolvePrincipal(username)
+                .map(UserPrincipal::id)
                 .orElseThrow(() -> new IllegalArgumentException("用户不存在"));
-        return user.getId();
     }
 
     /**
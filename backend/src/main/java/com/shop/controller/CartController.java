@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.shop.dto.AddCartItemRequest;
 import com.shop.dto.ResponseDTO;
+import com.shop.dto.UpdateCartItemsRequest;
 import com.shop.dto.UpdateQuantityRequest;
 import com.shop.model.CartItem;
 import com.shop.service.CartService;
@@ -58,25 +59,43 @@ public class CartController extends BaseController {
     /**
      * 更新购物车某项的数量（增减数量都通过这个接口）
      *
-     * @param itemId 购物车项 ID
-     * @param req    更新请求
+     * @param itemId  购物车项 ID
+     * @param request HTTP 请求
+     * @param req     更新请求
      * @return 成功响应
      */
     @PutMapping("/items/{itemId}")
-    public ResponseDTO<Void> update(@PathVariable Long itemId, @RequestBody UpdateQuantityRequest req) {
-        cartService.updateItemQuantity(itemId, req.getQuantity());
+    public ResponseDTO<Void> update(@PathVariable Long itemId, HttpServletRequest request,
+                                    @RequestBody UpdateQuantityRequest req) {
+        Long userId = getCurrentUserId(request);
+        cartService.updateItemQuantity(userId, itemId, req.getQuantity());
         return ResponseDTO.ok(null);
     }
 
+    /**
+     * 批量设置购物车中商品的数量（一次请求修改多项）
+     *
+     * @param request HTTP 请求
+     * @param req     批量修改请求
+     * @return 修改后的购物车项列表
+     */
+    @PutMapping("/items")
+    public ResponseDTO<List<CartItem>> updateItems(HttpServletRequest request, @RequestBody UpdateCartItemsRequest req) {
+        Long userId = getCurrentUserId(request);
+        return ResponseDTO.ok(cartService.updateItems(userId, req.getItems()));
+    }
+
     /**
      * 删除购物车中的某项
      *
-     * @param itemId 购物车项 ID
+     * @param itemId  购物车项 ID
+     * @param request HTTP 请求
      * @return 成功响应
      */
     @DeleteMapping("/items/{itemId}")
-    public ResponseDTO<Void> remove(@PathVariable Long itemId) {
-        cartService.removeItem(itemId);
+    public ResponseDTO<Void> remove(@PathVariable Long itemId, HttpServletRequest request) {
+        Long userId = getCurrentUserId(request);
+        cartService.removeItem(userId, itemId);
         return ResponseDTO.ok(null);
     }
 }
@@ -1,34 +1,66 @@
 package com.shop.controller;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.shop.cache.ImageBlobCache;
 import com.shop.dto.ResponseDTO;
+import com.shop.exception.ResourceNotFoundException;
+import com.shop.service.ImageService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
 
-    @Value("${app.upload.path}")
-    private String uploadPath;
+    // 图片文件不可变（文件名由内容决定），允许浏览器和 CDN 长期缓存
+    private static final String IMAGE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Tomcat sendfile 约定的请求属性
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // 扩展名 -> Content-Type
+    private static final Map<String, String> CONTENT_TYPES = new ConcurrentHashMap<>();
+
+    private final ImageService imageService;
+    private final ImageBlobCache imageCache;
+
+    public FileController(ImageService imageService, ImageBlobCache imageCache) {
+        this.imageService = imageService;
+        this.imageCache = imageCache;
+    }
 
     // 图片上传接口
     @PostMapping("/upload")
@@ -38,25 +70,9 @@ public class FileController {
         }
 
         try {
-            // 创建上传目录（如果不存在）
-            File uploadDir = new File(uploadPath);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
-
-            // 获取原始文件名和扩展名
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-
-            // 生成唯一文件名
-            String filename = UUID.randomUUID().toString() + extension;
-            
-            // 保存文件
-            Path filePath = Paths.get(uploadPath, filename);
-            Files.copy(file.getInputStream(), filePath);
+            String filename = imageService.store(file);
+            // 上传后在后台生成各尺寸缩略图
+            imageService.generateVariantsAsync(filename);
 
             // 返回文件访问URL（相对路径）
             String fileUrl = "/api/files/images/" + filename;
@@ -67,29 +83,148 @@ public class FileController {
         }
     }
 
-    // 图片访问接口
+    /**
+     * 图片访问接口
+     *
+     * 1. 文件名由内容哈希（早期为 UUID）生成，内容不会变化，返回一年期的 immutable 缓存头和 Last-Modified；
+     *    内容哈希文件名的 ETag 直接取文件名中的哈希（缩略图附加宽度），早期文件名退化为“大小-修改时间”。
+     * 2. 请求带 If-None-Match / If-Modified-Since 且未变化时返回 304，不传输文件内容。
+     * 3. 支持单段 Range 请求（206），无法满足的范围返回 416；多段 Range 按整文件返回。
+     * 4. 启用热点图片缓存时从堆外内存写出；否则通过 Tomcat sendfile 零拷贝发送，
+     *    连接器不支持时退化为 FileChannel.transferTo。
+     * 5. 可选参数 size 指定期望宽度，返回对应尺寸的缩略图（如 ?size=400）。
+     */
     @GetMapping("/images/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable String filename) {
+    public void getImage(@PathVariable String filename,
+                         @RequestParam(required = false) Integer size,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Path file = imageService.resolve(filename, size);
+
+        BasicFileAttributes attributes;
         try {
-            Path filePath = Paths.get(uploadPath, filename);
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                // 根据文件扩展名设置Content-Type
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "application/octet-stream";
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("文件不存在");
+        }
+        if (!attributes.isRegularFile()) {
+            throw new ResourceNotFoundException("文件不存在");
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String contentTag = imageService.contentTagOf(filename, file);
+        String etag = "\"" + (contentTag != null
+                ? contentTag
+                : Long.toHexString(length) + "-" + Long.toHexString(lastModified)) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMAGE_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // 写入 ETag / Last-Modified；条件请求命中时已设置 304（或 412），直接返回
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(contentTypeOf(filename));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start > end) {
+                        throw new IllegalArgumentException("Range 超出文件长度");
+                    }
                 }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        // 热点图片直接从内存缓存写出
+        ByteBuffer cached = imageCache.get(file, length, lastModified);
+        if (cached != null) {
+            cached.position((int) start).limit((int) (start + count));
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            while (cached.hasRemaining()) {
+                out.write(cached);
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // 由 Tomcat 在请求处理结束后直接从文件发送到套接字（sendfile），不经过用户态缓冲区
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+        transfer(file, start, count, response);
+    }
 
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                throw new RuntimeException("文件不存在或不可读");
+    /**
+     * If-Range 与当前 ETag 或 Last-Modified 一致时 Range 才生效，否则返回整个文件
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 按扩展名查找 Content-Type（结果缓存，不访问文件系统）
+     */
+    private static String contentTypeOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        String extension = dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.computeIfAbsent(extension, ext -> MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString());
+    }
+
+    /**
+     * 使用 FileChannel.transferTo 将文件的指定区间写入响应
+     */
+    private static void transfer(Path file, long position, long count, HttpServletResponse response)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
             }
-        } catch (Exception e) {
-            throw new RuntimeException("读取文件失败: " + e.getMessage());
         }
     }
 }
@@ -7,9 +7,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.shop.cache.IdempotencyStore;
 import com.shop.dto.PayOrderRequest;
 import com.shop.dto.ResponseDTO;
 import com.shop.model.Order;
@@ -21,36 +23,51 @@ import jakarta.servlet.http.HttpServletRequest;
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController extends BaseController {
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final OrderService orderService;
+    private final IdempotencyStore idempotencyStore;
 
-    public OrderController(OrderService orderService, UserService userService) {
+    public OrderController(OrderService orderService, UserService userService, IdempotencyStore idempotencyStore) {
         super(userService);
         this.orderService = orderService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     /**
      * 创建一个待支付订单（通常用于从购物车生成订单）
+     * 携带 Idempotency-Key 时，重试请求返回首次创建的订单，不会重复下单
      *
-     * @param request HTTP 请求
+     * @param request        HTTP 请求
+     * @param idempotencyKey 幂等键（可选）
      * @return 创建的订单
      */
     @PostMapping("/create")
-    public ResponseDTO<Order> create(HttpServletRequest request) {
+    public ResponseDTO<Order> create(HttpServletRequest request,
+                                     @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId(request);
-        return ResponseDTO.ok(orderService.createPendingOrder(userId));
+        Order order = idempotencyStore.execute("order.create:" + userId, idempotencyKey, null,
+                () -> orderService.createPendingOrder(userId));
+        return ResponseDTO.ok(order);
     }
 
     /**
      * 支付订单
+     * 携带 Idempotency-Key 时，重试请求直接返回成功，不会因订单已支付而报错
      *
-     * @param request HTTP 请求
-     * @param req     支付请求
+     * @param request        HTTP 请求
+     * @param req            支付请求
+     * @param idempotencyKey 幂等键（可选）
      * @return 成功响应
      */
     @PostMapping("/pay")
-    public ResponseDTO<Void> pay(HttpServletRequest request, @RequestBody PayOrderRequest req) {
+    public ResponseDTO<Void> pay(HttpServletRequest request, @RequestBody PayOrderRequest req,
+                                 @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         Long userId = getCurrentUserId(request);
-        orderService.markPaidAndFulfillCart(req.getOrderId(), userId);
+        idempotencyStore.execute("order.pay:" + userId, idempotencyKey, req.getOrderId(), () -> {
+            orderService.markPaidAndFulfillCart(req.getOrderId(), userId);
+            return Boolean.TRUE;
+        });
         return ResponseDTO.ok(null);
     }
 
@@ -1,7 +1,5 @@
 package com.shop.controller;
 
-import java.util.List;
-
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -26,25 +24,41 @@ public class ProductController {
     }
 
     /**
-     * 查询全部产品
+     * 查询产品
+     * 未传 cursor 和 size 时返回全部产品（兼容旧客户端），否则返回游标分页结果
      *
-     * @return 产品列表
+     * @param cursor 上一页返回的 nextCursor
+     * @param size   每页条数
+     * @return 产品列表或分页结果
      */
     @GetMapping
-    public ResponseDTO<List<Product>> list() {
-        return ResponseDTO.ok(productService.listAll());
+    public ResponseDTO<?> list(
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (cursor == null && size == null) {
+            return ResponseDTO.ok(productService.listAll());
+        }
+        return ResponseDTO.ok(productService.listPage(cursor, size));
     }
 
     /**
      * 搜索产品，可根据关键字查询
+     * 未传 cursor 和 size 时返回全部匹配结果（兼容旧客户端），否则返回游标分页结果
      *
-     * @param query 搜索关键词
-     * @return 匹配的产品列表
+     * @param query  搜索关键词
+     * @param cursor 上一页返回的 nextCursor
+     * @param size   每页条数
+     * @return 匹配的产品列表或分页结果
      */
     @GetMapping("/search")
-    public ResponseDTO<List<Product>> search(
-            @RequestParam(value = "query", required = false) String query) {
-        return ResponseDTO.ok(productService.search(query));
+    public ResponseDTO<?> search(
+            @RequestParam(value = "query", required = false) String query,
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (cursor == null && size == null) {
+            return ResponseDTO.ok(productService.search(query));
+        }
+        return ResponseDTO.ok(productService.searchPage(query, cursor, size));
     }
 
     /**
@@ -0,0 +1,17 @@
+package com.shop.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 后台订单列表项（订单信息 + 下单用户名），由单条关联查询直接投影得到
+ */
+public record AdminOrderView(
+        Long id,
+        Long userId,
+        String username,
+        BigDecimal totalPrice,
+        String status,
+        LocalDateTime createTime
+) {
+}
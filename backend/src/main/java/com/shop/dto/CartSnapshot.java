@@ -0,0 +1,46 @@
+package com.shop.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.shop.util.Money;
+
+/**
+ * 结算用购物车快照（不可变）
+ * 购物车内容与商品信息在同一时刻读取一次，计价、库存校验、预占和生成订单项都基于同一份数据
+ *
+ * @param lines 每种商品一行
+ */
+public record CartSnapshot(List<Line> lines) {
+
+    public CartSnapshot {
+        lines = List.copyOf(lines);
+    }
+
+    /**
+     * 快照中的一行
+     *
+     * @param productId      商品 ID
+     * @param productName    商品名称
+     * @param unitPriceCents 下单时的单价（分）
+     * @param stock          读取时的库存
+     * @param quantity       购买数量
+     */
+    public record Line(Long productId, String productName, long unitPriceCents, int stock, int quantity) {
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * 订单总价（以分为单位累加，溢出时抛出 ArithmeticException）
+     */
+    public BigDecimal total() {
+        long cents = 0;
+        for (Line line : lines) {
+            cents = Math.addExact(cents, Math.multiplyExact(line.unitPriceCents(), line.quantity()));
+        }
+        return Money.ofCents(cents);
+    }
+}
@@ -0,0 +1,67 @@
+package com.shop.dto;
+
+import java.util.List;
+
+import com.shop.exception.BusinessException;
+
+/**
+ * 游标分页响应 DTO
+ * nextCursor 为下一页请求应携带的 cursor，没有更多数据时为 null
+ */
+public class CursorPage<T> {
+    public static final int DEFAULT_SIZE = 20;   // 默认每页条数
+    public static final int MAX_SIZE = 100;      // 每页条数上限
+
+    private List<T> items;
+    private Long nextCursor;
+    private boolean hasMore;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, Long nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * 规范化分页大小：为空时取默认值，超过上限时截断
+     *
+     * @param size 请求的每页条数
+     * @return 合法的每页条数
+     */
+    public static int normalizeSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        if (size <= 0) {
+            throw new BusinessException("分页大小必须大于 0");
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+}
@@ -0,0 +1,58 @@
+package com.shop.dto;
+
+import java.util.List;
+
+/**
+ * 批量修改购物车请求 DTO
+ * 每一项把指定商品的数量设置为给定值：商品不在购物车中时加入，数量为 0 时移除
+ */
+public class UpdateCartItemsRequest {
+    private List<Line> items;
+
+    public UpdateCartItemsRequest() {
+    }
+
+    public UpdateCartItemsRequest(List<Line> items) {
+        this.items = items;
+    }
+
+    public List<Line> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Line> items) {
+        this.items = items;
+    }
+
+    /**
+     * 单个商品的目标数量
+     */
+    public static class Line {
+        private Long productId;
+        private Integer quantity;
+
+        public Line() {
+        }
+
+        public Line(Long productId, Integer quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.shop.dto;
+
+/**
+ * 当前登录用户的身份信息（ID、用户名、角色）
+ * 由认证拦截器解析后写入 request 属性 "principal"
+ */
+public record UserPrincipal(Long id, String username, String role) {
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+}
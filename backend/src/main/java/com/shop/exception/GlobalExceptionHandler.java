@@ -7,6 +7,8 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * 全局异常处理器
  * 
@@ -60,6 +62,14 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ResponseDTO.fail(ex.getMessage()), HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * 处理线程池已满被拒绝的任务（如登录高峰时的密码校验），返回 503 让客户端稍后重试
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ResponseDTO<Void>> handleRejected(RejectedExecutionException ex) {
+        return new ResponseEntity<>(ResponseDTO.fail("系统繁忙，请稍后再试"), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * 处理其他未捕获的异常
      */
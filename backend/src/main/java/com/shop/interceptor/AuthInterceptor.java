@@ -3,6 +3,7 @@ package com.shop.interceptor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import com.shop.dto.UserPrincipal;
 import com.shop.exception.BusinessException;
 import com.shop.service.UserService;
 import com.shop.util.JwtUtil;
@@ -15,7 +16,8 @@ import jakarta.servlet.http.HttpServletResponse;
  *
  * 功能：
  * 1. 验证请求中的 JWT 是否有效。
- * 2. 将用户名和角色信息写入 request 属性，供后续业务逻辑使用。
+ * 2. 解析用户身份（经缓存，避免每次请求查询 users 表），
+ *    将身份、用户名和角色写入 request 属性，供后续业务逻辑使用。
  * 3. 放行无需认证的接口（如登录注册、商品查询）。
  */
 @Component
@@ -65,21 +67,22 @@ public class AuthInterceptor implements HandlerInterceptor {
             // 去掉 "Bearer " 前缀
             String jwtToken = token.substring(7);
             
-            // 解析 JWT
-            String username = jwtUtil.extractUsername(jwtToken);
-            String role = jwtUtil.extractRole(jwtToken);
+            // 解析 JWT（一次验签取出全部声明）
+            JwtUtil.TokenClaims claims = jwtUtil.verify(jwtToken);
+            String username = claims.username();
+            String role = claims.role();
 
-            // 检查用户是否存在
-            if (!userService.existsByUsername(username)) {
-                throw new BusinessException("用户不存在");
-            }
+            // 检查用户是否存在，并解析用户 ID 与角色
+            UserPrincipal principal = userService.resolvePrincipal(username)
+                    .orElseThrow(() -> new BusinessException("用户不存在"));
 
             // 管理员接口权限校验
             if (path.startsWith("/api/admin") && !"ADMIN".equals(role)) {
                 throw new BusinessException("无权访问");
             }
 
-            // 将用户名和角色写入 request，供控制器使用
+            // 将用户身份、用户名和角色写入 request，供控制器使用
+            request.setAttribute("principal", principal);
             request.setAttribute("username", username);
             request.setAttribute("role", role);
             return true;
@@ -0,0 +1,120 @@
+package com.shop.lock;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 按商品分段的进程内锁（结算准入控制）
+ *
+ * 功能：
+ * 1. 商品 ID 按哈希映射到固定数量的锁分段，同一商品的库存扣减在进程内排队执行，
+ *    请求不再同时挤到数据库的同一行锁上；不同商品落在不同分段时互不影响。
+ * 2. 多商品订单按分段序号升序加锁、逆序释放，避免互相等待造成死锁。
+ * 3. 等待超过上限时抛出 RejectedExecutionException（返回 503），避免请求线程无限堆积。
+ * 4. 每个分段的等待耗时记录为 checkout.lock.wait{stripe=序号}。
+ *
+ * 锁需在事务外获取、在事务提交后释放，调用方应在 action 内部开启并完成事务。
+ */
+@Component
+public class ProductLockStripes {
+
+    private final ReentrantLock[] locks;
+    private final Timer[] waitTimers;
+    private final Counter timeoutCounter;
+    private final long timeoutNanos;
+
+    public ProductLockStripes(
+            @Value("${app.checkout.lock-stripes:64}") int stripes,
+            @Value("${app.checkout.lock-timeout:5s}") Duration timeout,
+            MeterRegistry meterRegistry
+    ) {
+        // 分段数取不小于配置值的 2 的幂，便于用位运算取模
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        this.waitTimers = new Timer[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+            waitTimers[i] = Timer.builder("checkout.lock.wait")
+                    .description("结算时等待商品分段锁的耗时")
+                    .tag("stripe", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        this.timeoutCounter = Counter.builder("checkout.lock.timeout")
+                .description("等待商品分段锁超时的次数")
+                .register(meterRegistry);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * 持有给定商品对应的全部分段锁执行操作
+     *
+     * @param productIds 商品 ID 集合
+     * @param action     需要串行执行的操作（通常包含完整事务）
+     * @return 操作结果
+     */
+    public <T> T callLocked(Collection<Long> productIds, Supplier<T> action) {
+        // 去重并按分段序号升序排列，保证所有线程加锁顺序一致
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Long productId : productIds) {
+            stripes.add(stripeOf(productId));
+        }
+
+        int[] acquired = new int[stripes.size()];
+        int count = 0;
+        try {
+            for (int stripe : stripes) {
+                acquire(stripe);
+                acquired[count++] = stripe;
+            }
+            return action.get();
+        } finally {
+            for (int i = count - 1; i >= 0; i--) {
+                locks[acquired[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * 持有给定商品对应的全部分段锁执行操作（无返回值）
+     */
+    public void runLocked(Collection<Long> productIds, Runnable action) {
+        callLocked(productIds, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void acquire(int stripe) {
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = locks[stripe].tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待商品锁被中断", e);
+        } finally {
+            waitTimers[stripe].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!locked) {
+            timeoutCounter.increment();
+            throw new RejectedExecutionException("等待商品锁超时");
+        }
+    }
+
+    private int stripeOf(Long productId) {
+        long h = productId * 0x9E3779B97F4A7C15L;   // 打散连续 ID
+        return (int) (h >>> 32) & (locks.length - 1);
+    }
+}
@@ -4,8 +4,10 @@ import jakarta.persistence.*;
 
 /**
  * 购物车项实体类
+ * 同一购物车中每种商品只有一行（cart_id + product_id 唯一）
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_cart_product", columnNames = {"cartId", "productId"}))
 public class CartItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,46 @@
+package com.shop.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+@Entity                                             // 库存预占记录，对应一个待支付订单中的一种商品
+@Table(name = "inventory_hold", indexes = {
+        @Index(name = "idx_hold_order", columnList = "orderId"),
+        @Index(name = "idx_hold_expire", columnList = "expireTime")
+})
+public class InventoryHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;                                // 预占记录 ID
+
+    @Column(nullable = false)
+    private Long orderId;                           // 所属订单 ID
+
+    @Column(nullable = false)
+    private Long productId;                         // 商品 ID
+
+    @Column(nullable = false)
+    private Integer quantity;                       // 预占数量
+
+    @Column(nullable = false)
+    private LocalDateTime expireTime;               // 过期时间，过期后由定时任务释放
+
+    // ===== Getter / Setter =====
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+    public LocalDateTime getExpireTime() { return expireTime; }
+    public void setExpireTime(LocalDateTime expireTime) { this.expireTime = expireTime; }
+}
@@ -1,12 +1,18 @@
 package com.shop.model;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.shop.util.Money;
+
 import jakarta.persistence.*;
 
 @Entity                                             // 订单实体类
-@Table(name = "orders")                             // 对应数据库表 orders
+@Table(name = "orders", indexes = {                 // 对应数据库表 orders
+        @Index(name = "idx_orders_status_time", columnList = "status, createTime"),
+        @Index(name = "idx_orders_user", columnList = "userId")
+})
 public class Order {
 
     @Id
@@ -16,8 +22,8 @@ public class Order {
     @Column(nullable = false)
     private Long userId;                            // 下单用户 ID
 
-    @Column(nullable = false)
-    private Double totalPrice;                      // 订单总金额
+    @Column(nullable = false, precision = Money.PRECISION, scale = Money.SCALE)
+    private BigDecimal totalPrice;                  // 订单总金额（两位小数）
 
     @Column(nullable = false)
     private String status;                          // 订单状态：Pending / Paid / Shipping / Completed / Cancelled
@@ -39,8 +45,8 @@ public class Order {
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
 
-    public Double getTotalPrice() { return totalPrice; }
-    public void setTotalPrice(Double totalPrice) { this.totalPrice = totalPrice; }
+    public BigDecimal getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
 
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
@@ -1,5 +1,9 @@
 package com.shop.model;
 
+import java.math.BigDecimal;
+
+import com.shop.util.Money;
+
 import jakarta.persistence.*;
 
 @Entity                                            // 订单项实体类，对应订单中的每件商品
@@ -18,8 +22,8 @@ public class OrderItem {
     @Column(nullable = false)
     private Integer quantity;                       // 购买数量
 
-    @Column(nullable = false)
-    private Double price;                           // 下单时的商品单价（快照）
+    @Column(nullable = false, precision = Money.PRECISION, scale = Money.SCALE)
+    private BigDecimal price;                       // 下单时的商品单价（快照）
 
     @Transient
     private Product product;                        // 商品详情（非数据库字段，由 Service 动态填充）
@@ -38,8 +42,8 @@ public class OrderItem {
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
 
-    public Double getPrice() { return price; }
-    public void setPrice(Double price) { this.price = price; }
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
 
     public Product getProduct() { return product; }
     public void setProduct(Product product) { this.product = product; }
@@ -1,5 +1,9 @@
 package com.shop.model;
 
+import java.math.BigDecimal;
+
+import com.shop.util.Money;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -17,8 +21,8 @@ public class Product {
     @Column(nullable = false)
     private String name;                            // 商品名称
 
-    @Column(nullable = false)
-    private Double price;                           // 商品价格
+    @Column(nullable = false, precision = Money.PRECISION, scale = Money.SCALE)
+    private BigDecimal price;                       // 商品价格（两位小数）
 
     @Column(nullable = false)
     private Integer stock;                          // 库存数量
@@ -34,8 +38,8 @@ public class Product {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
-    public Double getPrice() { return price; }
-    public void setPrice(Double price) { this.price = price; }
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
 
     public Integer getStock() { return stock; }
     public void setStock(Integer stock) { this.stock = stock; }
@@ -0,0 +1,87 @@
+package com.shop.monitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 单个 HTTP 请求内的 SQL 统计（语句数、数据库耗时、按 SQL 形状计数）
+ *
+ * 绑定在处理请求的线程上，由 SqlStatsFilter 开启和结束；
+ * 请求之外执行的 SQL（定时任务、@Async）不在任何请求上下文中，不做统计。
+ */
+public final class RequestSqlStats {
+
+    private static final ThreadLocal<RequestSqlStats> CURRENT = new ThreadLocal<>();
+
+    private static final int MAX_SHAPES = 256;          // 单个请求最多跟踪的 SQL 形状数
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private int statements;
+    private long nanos;
+    private final Map<String, Integer> shapes = new HashMap<>();   // SQL 形状 -> 执行次数
+
+    private RequestSqlStats() {
+    }
+
+    /**
+     * 为当前线程开启统计
+     */
+    static RequestSqlStats begin() {
+        RequestSqlStats stats = new RequestSqlStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * 结束当前线程的统计
+     */
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 记录一次语句执行；当前线程不在请求中时忽略
+     *
+     * @param sql   SQL 文本（批处理时为批处理语句）
+     * @param nanos 执行耗时（纳秒）
+     */
+    static void record(String sql, long nanos) {
+        RequestSqlStats stats = CURRENT.get();
+        if (stats == null) {
+            return;
+        }
+        stats.statements++;
+        stats.nanos += nanos;
+        if (sql != null) {
+            String shape = shapeOf(sql);
+            if (stats.shapes.size() < MAX_SHAPES || stats.shapes.containsKey(shape)) {
+                stats.shapes.merge(shape, 1, Integer::sum);
+            }
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    Map<String, Integer> getShapes() {
+        return shapes;
+    }
+
+    /**
+     * SQL 形状：字面量替换为 ?，空白折叠为一个空格
+     * Hibernate 与 JdbcTemplate 生成的语句本身已参数化，这里主要处理手写的字面量 SQL
+     */
+    private static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
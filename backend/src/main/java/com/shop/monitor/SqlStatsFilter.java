@@ -0,0 +1,119 @@
+package com.shop.monitor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 请求级 SQL 统计
+ *
+ * 功能：
+ * 1. 统计每个 HTTP 请求执行的 SQL 语句数与数据库耗时（由 StatementCountingDataSource 在 JDBC 层采集）。
+ * 2. 结果写入 request 属性 sql.statements / sql.time.ms，并作为高基数标签附加到请求的 observation 上，
+ *    DEBUG 日志输出一行汇总，不再需要依赖 show-sql 逐条查看。
+ * 3. 同一形状的 SQL 在一个请求内执行超过阈值次时输出 WARN（疑似 N+1 查询），并计数 sql.repeated。
+ * 4. 按接口（method + uri 模板）记录直方图：http.server.requests.sql.statements 与 http.server.requests.sql.time。
+ */
+@Component
+@ConditionalOnProperty(name = "app.sql-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatsFilter.class);
+
+    private static final int MAX_LOGGED_SQL_LENGTH = 300;
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatThreshold;
+
+    public SqlStatsFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.sql-stats.repeat-threshold:10}") int repeatThreshold
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestSqlStats stats = RequestSqlStats.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestSqlStats.end();
+            report(request, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, RequestSqlStats stats) {
+        long timeMs = TimeUnit.NANOSECONDS.toMillis(stats.getNanos());
+        request.setAttribute("sql.statements", stats.getStatements());
+        request.setAttribute("sql.time.ms", timeMs);
+        ServerHttpObservationFilter.findObservationContext(request).ifPresent(context -> {
+            context.addHighCardinalityKeyValue(KeyValue.of("sql.statements", String.valueOf(stats.getStatements())));
+            context.addHighCardinalityKeyValue(KeyValue.of("sql.time.ms", String.valueOf(timeMs)));
+        });
+
+        // uri 使用路由模板（如 /api/orders/{id}），未匹配到路由的请求归为 UNKNOWN，避免标签基数失控
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("每个请求执行的 SQL 语句数")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("http.server.requests.sql.time")
+                .description("每个请求的数据库耗时")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofNanos(stats.getNanos()));
+
+        for (Map.Entry<String, Integer> shape : stats.getShapes().entrySet()) {
+            if (shape.getValue() > repeatThreshold) {
+                Counter.builder("sql.repeated")
+                        .description("同一 SQL 在单个请求内重复执行超过阈值的次数（疑似 N+1）")
+                        .tag("method", method)
+                        .tag("uri", uri)
+                        .register(meterRegistry)
+                        .increment();
+                log.warn("Possible N+1: {} {} executed the same SQL {} times: {}",
+                        method, uri, shape.getValue(), abbreviate(shape.getKey()));
+            }
+        }
+
+        if (log.isDebugEnabled() && stats.getStatements() > 0) {
+            log.debug("{} {} executed {} SQL statements in {} ms",
+                    method, request.getRequestURI(), stats.getStatements(), timeMs);
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= MAX_LOGGED_SQL_LENGTH ? sql : sql.substring(0, MAX_LOGGED_SQL_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,24 @@
+package com.shop.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.shop.model.CartItem;
+
+// 购物车项批量写入（由 CartItemBatchRepositoryImpl 基于 JDBC 批处理实现）
+public interface CartItemBatchRepository {
+
+    /**
+     * 用内存中的购物车内容整体替换数据库中的购物车项
+     * 先按购物车批量删除，再在一个 JDBC 批次中插入（保留内存中分配的购物车项 ID），需在事务中调用
+     *
+     * @param itemsByCart 购物车 ID -> 该购物车的全部购物车项（为空表示清空）
+     */
+    void replaceItems(Map<Long, ? extends Collection<CartItem>> itemsByCart);
+
+    /**
+     * 当前最大的购物车项 ID（没有记录时为 0）
+     */
+    long maxId();
+}
@@ -0,0 +1,52 @@
+package com.shop.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.shop.model.CartItem;
+
+/**
+ * CartItemBatchRepository 的 JDBC 实现
+ * 购物车项 ID 由 CartStore 在内存中分配，插入时显式写入 id 列；
+ * 写回按购物车整体替换，不需要逐行比较差异
+ */
+public class CartItemBatchRepositoryImpl implements CartItemBatchRepository {
+
+    private static final String DELETE_SQL = "DELETE FROM cart_item WHERE cart_id = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO cart_item (id, cart_id, product_id, quantity) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartItemBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void replaceItems(Map<Long, ? extends Collection<CartItem>> itemsByCart) {
+        if (itemsByCart.isEmpty()) {
+            return;
+        }
+        List<Long> cartIds = new ArrayList<>(itemsByCart.keySet());
+        jdbcTemplate.batchUpdate(DELETE_SQL, cartIds, cartIds.size(), (ps, cartId) -> ps.setLong(1, cartId));
+
+        List<CartItem> items = new ArrayList<>();
+        itemsByCart.values().forEach(items::addAll);
+        JdbcBatchInserts.insertAll(jdbcTemplate, INSERT_SQL, items, (ps, item) -> {
+            ps.setLong(1, item.getId());
+            ps.setLong(2, item.getCartId());
+            ps.setLong(3, item.getProductId());
+            ps.setInt(4, item.getQuantity());
+        });
+    }
+
+    @Override
+    public long maxId() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cart_item", Long.class);
+        return max == null ? 0 : max;
+    }
+}
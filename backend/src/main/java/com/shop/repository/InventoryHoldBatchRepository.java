@@ -0,0 +1,17 @@
+package com.shop.repository;
+
+import java.util.List;
+
+import com.shop.model.InventoryHold;
+
+// 库存预占记录批量写入（由 InventoryHoldBatchRepositoryImpl 基于 JDBC 批处理实现）
+public interface InventoryHoldBatchRepository {
+
+    /**
+     * 在一个 JDBC 批次中插入全部预占记录
+     * 插入后不回填记录 ID。
+     *
+     * @param holds 预占记录列表
+     */
+    void insertAll(List<InventoryHold> holds);
+}
@@ -0,0 +1,34 @@
+package com.shop.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.shop.model.InventoryHold;
+
+/**
+ * InventoryHoldBatchRepository 的 JDBC 实现
+ * 预占记录在下单事务中按商品各写一行；释放时按订单查出整体删除，写入时不需要记录 ID
+ */
+public class InventoryHoldBatchRepositoryImpl implements InventoryHoldBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO inventory_hold (order_id, product_id, quantity, expire_time) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryHoldBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<InventoryHold> holds) {
+        JdbcBatchInserts.insertAll(jdbcTemplate, INSERT_SQL, holds, (ps, hold) -> {
+            ps.setLong(1, hold.getOrderId());
+            ps.setLong(2, hold.getProductId());
+            ps.setInt(3, hold.getQuantity());
+            ps.setTimestamp(4, Timestamp.valueOf(hold.getExpireTime()));
+        });
+    }
+}
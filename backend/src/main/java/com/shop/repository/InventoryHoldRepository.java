@@ -0,0 +1,40 @@
+package com.shop.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.shop.model.InventoryHold;
+
+import jakarta.persistence.LockModeType;
+
+// 库存预占记录查询
+public interface InventoryHoldRepository extends JpaRepository<InventoryHold, Long>, InventoryHoldBatchRepository {
+
+    // 加写锁读取订单的预占记录，保证同一预占只会被释放一次
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<InventoryHold> findByOrderId(Long orderId);
+
+    // 加写锁批量读取多个订单的预占记录（批量取消订单时释放）
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<InventoryHold> findByOrderIdIn(Collection<Long> orderIds);
+
+    // 查询存在过期预占的订单 ID
+    @Query("SELECT DISTINCT h.orderId FROM InventoryHold h WHERE h.expireTime < :now")
+    List<Long> findExpiredOrderIds(@Param("now") LocalDateTime now, Limit limit);
+
+    // 按商品汇总全部预占数量（启动时重建内存计数）
+    @Query("SELECT h.productId AS productId, SUM(h.quantity) AS quantity FROM InventoryHold h GROUP BY h.productId")
+    List<ReservedQuantity> sumQuantityByProduct();
+
+    interface ReservedQuantity {
+        Long getProductId();
+        Long getQuantity();
+    }
+}
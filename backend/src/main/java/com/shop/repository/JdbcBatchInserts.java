@@ -0,0 +1,29 @@
+package com.shop.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+/**
+ * JDBC 批量插入的公共实现
+ *
+ * 使用 IDENTITY 主键的实体无法由 Hibernate 批量插入（每行都需要取回生成的 ID），
+ * 不需要回填 ID 的写入改为直接发送一个 JDBC 批次；MySQL 连接开启 rewriteBatchedStatements 后改写为多行 INSERT。
+ */
+final class JdbcBatchInserts {
+
+    private JdbcBatchInserts() {
+    }
+
+    /**
+     * 在一个 JDBC 批次中插入全部行（为空时不访问数据库）
+     */
+    static <T> void insertAll(JdbcTemplate jdbcTemplate, String sql, List<T> rows,
+                              ParameterizedPreparedStatementSetter<T> setter) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, rows, rows.size(), setter);
+    }
+}
@@ -0,0 +1,18 @@
+package com.shop.repository;
+
+import java.util.List;
+
+import com.shop.model.OrderItem;
+
+// 订单项批量写入（由 OrderItemBatchRepositoryImpl 基于 JDBC 批处理实现）
+public interface OrderItemBatchRepository {
+
+    /**
+     * 在一个 JDBC 批次中插入全部订单项
+     * MySQL 连接开启 rewriteBatchedStatements 后，驱动会将其改写为一条多行 INSERT。
+     * 插入后不回填订单项 ID。
+     *
+     * @param items 订单项列表
+     */
+    void insertAll(List<OrderItem> items);
+}
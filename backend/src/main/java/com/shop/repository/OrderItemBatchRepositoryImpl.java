@@ -0,0 +1,33 @@
+package com.shop.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.shop.model.OrderItem;
+
+/**
+ * OrderItemBatchRepository 的 JDBC 实现
+ * 订单项在下单事务中一次性写入、之后不再修改，调用方也不需要订单项 ID
+ */
+public class OrderItemBatchRepositoryImpl implements OrderItemBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_item (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<OrderItem> items) {
+        JdbcBatchInserts.insertAll(jdbcTemplate, INSERT_SQL, items, (ps, item) -> {
+            ps.setLong(1, item.getOrderId());
+            ps.setLong(2, item.getProductId());
+            ps.setInt(3, item.getQuantity());
+            ps.setBigDecimal(4, item.getPrice());
+        });
+    }
+}
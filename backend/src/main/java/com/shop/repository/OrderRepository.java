@@ -1,13 +1,47 @@
 package com.shop.repository;
 
+import com.shop.dto.AdminOrderView;
 import com.shop.model.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 // 用户ID查询订单
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserId(Long userId);
-}
 
+    // 查询创建时间早于 cutoff 的待支付订单 ID（按 ID 升序，分批）
+    @Query("SELECT o.id FROM Order o WHERE o.status = 'PENDING' AND o.createTime < :cutoff ORDER BY o.id")
+    List<Long> findPendingIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // 批量取消仍处于待支付状态的订单，返回实际更新的行数
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'CANCELLED' WHERE o.id IN :ids AND o.status = 'PENDING'")
+    int cancelPendingByIds(@Param("ids") Collection<Long> ids);
 
+    // 后台订单列表：订单与用户名一次关联查出，按 ID 倒序键集分页，过滤条件为空时不生效
+    @Query("SELECT new com.shop.dto.AdminOrderView(o.id, o.userId, u.username, o.totalPrice, o.status, o.createTime) "
+            + "FROM Order o LEFT JOIN User u ON u.id = o.userId "
+            + "WHERE o.id < :beforeId "
+            + "AND (:status IS NULL OR o.status = :status) "
+            + "AND (:userId IS NULL OR o.userId = :userId) "
+            + "AND (:from IS NULL OR o.createTime >= :from) "
+            + "AND (:to IS NULL OR o.createTime < :to) "
+            + "ORDER BY o.id DESC")
+    List<AdminOrderView> findAdminPage(@Param("beforeId") Long beforeId,
+                                       @Param("status") String status,
+                                       @Param("userId") Long userId,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to,
+                                       Limit limit);
+
+    // 全部订单及其下单用户（一次关联查询），每行为 [Order, User]
+    @Query("SELECT o, u FROM Order o LEFT JOIN User u ON u.id = o.userId")
+    List<Object[]> findAllWithUser();
+}
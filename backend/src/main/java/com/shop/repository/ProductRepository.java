@@ -2,13 +2,27 @@ package com.shop.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.shop.model.Product;
 
 // 商品名称匹配查询商品
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository {
 	List<Product> findByNameContainingIgnoreCase(String name);
+
+	// 键集分页：按主键顺序取 afterId 之后的若干条（仅使用 LIMIT，不使用 OFFSET）
+	List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+	List<Product> findByIdGreaterThanAndNameContainingIgnoreCaseOrderByIdAsc(Long afterId, String name, Limit limit);
+
+	// 所有商品引用的图片地址（用于清理无引用的图片文件）
+	@Query("SELECT p.imgUrl FROM Product p WHERE p.imgUrl IS NOT NULL")
+	List<String> findAllImgUrls();
+
+	// 是否仍有商品引用该图片文件（清理时删除前逐个复查）
+	boolean existsByImgUrlContaining(String filename);
 }
 
 
@@ -0,0 +1,18 @@
+package com.shop.repository;
+
+import java.util.List;
+import java.util.Map;
+
+// 商品库存批量原子操作（由 ProductStockRepositoryImpl 基于 JDBC 批处理实现）
+public interface ProductStockRepository {
+
+    /**
+     * 批量条件扣减库存：对每个商品执行
+     * UPDATE product SET stock = stock - ? WHERE id = ? AND stock >= ?
+     * 所有语句在同一个 JDBC 批次中发送，按商品 ID 升序加锁以避免死锁。
+     *
+     * @param quantities 商品 ID -> 扣减数量
+     * @return 未能扣减（库存不足或商品不存在）的商品 ID 列表，全部成功时为空
+     */
+    List<Long> decrementStock(Map<Long, Integer> quantities);
+}
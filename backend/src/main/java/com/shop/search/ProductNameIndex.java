@@ -0,0 +1,333 @@
+package com.shop.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.shop.model.Product;
+
+/**
+ * 商品名称倒排索引（字符 n-gram）
+ *
+ * 功能：
+ * 1. 以字符单字（unigram）和双字（bigram）为词项建立倒排表，支持中日韩等无空格分词的商品名。
+ * 2. 倒排表使用原始 int 数组存储内部文档号，查询时对各词项倒排表求交集得到候选集。
+ * 3. 候选集再用子串匹配校验，结果与 LIKE '%q%' 一致，并按相关度排序返回商品 ID。
+ * 4. 支持增量新增、更新、删除；删除采用墓碑标记，墓碑过多时整体压缩重建。
+ * 5. 全量重建时在锁外加载商品，加载期间的增量修改会被记录，重建完成后按顺序重放，不会丢失。
+ */
+@Component
+public class ProductNameIndex {
+
+    private static final long UNIGRAM_FLAG = 1L << 42;  // 区分单字与双字词项
+    private static final int COMPACT_MIN_DOCS = 1024;   // 触发压缩的最小文档数
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();   // 同一时间只进行一次全量重建
+
+    private final Map<Long, Postings> postings = new HashMap<>();   // 词项 -> 倒排表
+    private final Map<Long, Integer> docByProductId = new HashMap<>(); // 商品 ID -> 当前文档号
+    private final BitSet deleted = new BitSet();                     // 已删除（墓碑）文档
+    private long[] productIds = new long[64];                        // 文档号 -> 商品 ID
+    private String[] names = new String[64];                         // 文档号 -> 规范化后的名称
+    private int docCount;
+    private List<Change> pendingChanges;                             // 重建期间的增量修改（未重建时为 null）
+
+    private volatile boolean ready;
+
+    /**
+     * 使用全部商品重建索引
+     * loader 在锁外执行（可能是较慢的全表查询），期间的 put/remove 照常生效并被记录，
+     * 载入完成后在新索引上重放，晚于快照提交的修改不会丢失
+     *
+     * @param loader 加载全部商品
+     */
+    public void rebuild(Supplier<? extends Collection<Product>> loader) {
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Collection<Product> products;
+            try {
+                products = loader.get();
+            } catch (RuntimeException | Error e) {
+                lock.writeLock().lock();
+                try {
+                    pendingChanges = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                clear();
+                for (Product product : products) {
+                    addDocument(product.getId(), product.getName());
+                }
+                for (Change change : pendingChanges) {
+                    markDeleted(change.productId());
+                    addDocument(change.productId(), change.name());
+                }
+                pendingChanges = null;
+                compactIfNeeded();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * 新增或更新商品索引
+     *
+     * @param product 商品对象
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            record(product.getId(), product.getName());
+            markDeleted(product.getId());
+            addDocument(product.getId(), product.getName());
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从索引中移除商品
+     *
+     * @param productId 商品 ID
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            record(productId, null);
+            markDeleted(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引是否已完成初始构建
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 搜索商品名称，按相关度排序
+     * 排序规则：完全相同 > 前缀匹配 > 包含匹配；同级按匹配位置、名称长度、ID 升序
+     *
+     * @param query 搜索关键词
+     * @return 匹配的商品 ID 列表
+     */
+    public List<Long> search(String query) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(q);
+            List<Hit> hits = new ArrayList<>();
+            for (int doc : candidates) {
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                int pos = names[doc].indexOf(q);
+                if (pos < 0) {
+                    continue;
+                }
+                int rank = names[doc].length() == q.length() ? 0 : (pos == 0 ? 1 : 2);
+                hits.add(new Hit(productIds[doc], rank, pos, names[doc].length()));
+            }
+            hits.sort(Comparator.comparingInt(Hit::rank)
+                    .thenComparingInt(Hit::position)
+                    .thenComparingInt(Hit::length)
+                    .thenComparingLong(Hit::productId));
+            return hits.stream().map(Hit::productId).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== 内部实现 =====
+
+    /**
+     * 重建进行中时记录增量修改（name 为 null 表示删除）
+     */
+    private void record(Long productId, String name) {
+        if (pendingChanges != null && productId != null) {
+            pendingChanges.add(new Change(productId, name));
+        }
+    }
+
+    /**
+     * 求查询词各词项倒排表的交集
+     */
+    private int[] candidates(String q) {
+        long[] terms = q.codePointCount(0, q.length()) == 1 ? unigrams(q) : bigrams(q);
+        Postings[] lists = new Postings[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            lists[i] = postings.get(terms[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+        int[] result = Arrays.copyOf(lists[0].docs, lists[0].size);
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = intersect(result, lists[i]);
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, Postings b) {
+        int[] out = new int[Math.min(a.length, b.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.size) {
+            if (a[i] < b.docs[j]) {
+                i++;
+            } else if (a[i] > b.docs[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private void addDocument(Long productId, String name) {
+        if (productId == null || name == null) {
+            return;
+        }
+        int doc = docCount++;
+        if (doc == productIds.length) {
+            productIds = Arrays.copyOf(productIds, doc * 2);
+            names = Arrays.copyOf(names, doc * 2);
+        }
+        String normalized = normalize(name);
+        productIds[doc] = productId;
+        names[doc] = normalized;
+        docByProductId.put(productId, doc);
+
+        for (long term : unigrams(normalized)) {
+            postings.computeIfAbsent(term, t -> new Postings()).add(doc);
+        }
+        for (long term : bigrams(normalized)) {
+            postings.computeIfAbsent(term, t -> new Postings()).add(doc);
+        }
+    }
+
+    private void markDeleted(Long productId) {
+        Integer doc = docByProductId.remove(productId);
+        if (doc != null) {
+            deleted.set(doc);
+            names[doc] = null;
+        }
+    }
+
+    /**
+     * 墓碑超过一半时丢弃墓碑文档，重新分配文档号并重建倒排表
+     */
+    private void compactIfNeeded() {
+        if (docCount < COMPACT_MIN_DOCS || deleted.cardinality() * 2 <= docCount) {
+            return;
+        }
+        long[] liveIds = new long[docCount];
+        String[] liveNames = new String[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (!deleted.get(doc)) {
+                liveIds[live] = productIds[doc];
+                liveNames[live] = names[doc];
+                live++;
+            }
+        }
+        clear();
+        for (int i = 0; i < live; i++) {
+            addDocument(liveIds[i], liveNames[i]);
+        }
+    }
+
+    private void clear() {
+        postings.clear();
+        docByProductId.clear();
+        deleted.clear();
+        productIds = new long[64];
+        names = new String[64];
+        docCount = 0;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text.trim(), Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    private static long[] unigrams(String text) {
+        return text.codePoints().distinct().mapToLong(cp -> UNIGRAM_FLAG | cp).toArray();
+    }
+
+    private static long[] bigrams(String text) {
+        int[] cps = text.codePoints().toArray();
+        long[] terms = new long[Math.max(0, cps.length - 1)];
+        for (int i = 0; i + 1 < cps.length; i++) {
+            terms[i] = ((long) cps[i] << 21) | cps[i + 1];
+        }
+        return Arrays.stream(terms).distinct().toArray();
+    }
+
+    /**
+     * 倒排表：按文档号升序排列的 int 数组
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+
+    private record Hit(long productId, int rank, int position, int length) {
+    }
+
+    private record Change(Long productId, String name) {
+    }
+}
@@ -1,75 +1,104 @@
 package com.shop.service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.shop.cache.CartStore;
+import com.shop.cache.ProductCatalogCache;
+import com.shop.dto.CartSnapshot;
+import com.shop.dto.UpdateCartItemsRequest;
 import com.shop.exception.BusinessException;
-import com.shop.model.Cart;
 import com.shop.model.CartItem;
 import com.shop.model.Product;
-import com.shop.repository.CartItemRepository;
-import com.shop.repository.CartRepository;
 import com.shop.repository.ProductRepository;
+import com.shop.util.Money;
+import com.shop.util.Transactions;
 
+/**
+ * 购物车服务
+ *
+ * 购物车内容由 CartStore 保存在内存中，加购、改数量、删除不访问数据库（商品信息取自商品目录缓存），
+ * 修改由 CartStore 定时合并写回 cart_item。
+ */
 @Service
 public class CartService {
-    private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
+    private static final int MAX_BATCH_LINES = 100;   // 批量修改的最大项数
+
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
 
-    public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository, ProductRepository productRepository) {
-        this.cartRepository = cartRepository;
-        this.cartItemRepository = cartItemRepository;
+    public CartService(CartStore cartStore, ProductRepository productRepository, ProductCatalogCache catalogCache) {
+        this.cartStore = cartStore;
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
     }
 
     /**
-     * 获取或创建用户购物车
+     * 获取用户购物车中的所有有效商品
+     * 购物车项为某一时刻的一致快照；商品信息通过一次 IN 查询批量加载，查询次数与购物车大小无关
      *
      * @param userId 用户 ID
-     * @return 购物车对象
+     * @return 购物车项列表
      */
-    @Transactional
-    public Cart getOrCreateCart(Long userId) {
-        return cartRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    Cart cart = new Cart();
-                    cart.setUserId(userId);
-                    return cartRepository.save(cart);
-                });
+    public List<CartItem> getActiveCartItems(Long userId) {
+        List<CartItem> items = cartStore.snapshot(userId);
+        if (items.isEmpty()) {
+            return items;
+        }
+
+        // 批量加载商品信息
+        List<Long> productIds = items.stream()
+                .map(CartItem::getProductId)
+                .distinct()
+                .toList();
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        for (CartItem item : items) {
+            item.setProduct(products.get(item.getProductId()));
+        }
+
+        return items;
     }
 
     /**
-     * 获取用户购物车中的所有有效商品
+     * 生成结算用的购物车快照（同一商品的多行合并为一行）
+     * 购物车为内存快照，商品信息只查询一次
      *
      * @param userId 用户 ID
-     * @return 购物车项列表
+     * @return 不可变的购物车快照
      */
-    public List<CartItem> getActiveCartItems(Long userId) {
-        Cart cart = getOrCreateCart(userId);
-        List<CartItem> items = cartItemRepository.findByCartId(cart.getId());
-        
-        // 加载商品信息
-        for (CartItem item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElse(null);
-            item.setProduct(product);
+    public CartSnapshot checkoutSnapshot(Long userId) {
+        Map<Long, CartSnapshot.Line> lines = new LinkedHashMap<>();
+        for (CartItem item : getActiveCartItems(userId)) {
+            Product product = item.getProduct();
+            if (product == null) {
+                throw new BusinessException("商品不存在");
+            }
+            lines.merge(product.getId(),
+                    new CartSnapshot.Line(product.getId(), product.getName(), Money.toCents(product.getPrice()),
+                            product.getStock(), item.getQuantity()),
+                    (a, b) -> new CartSnapshot.Line(a.productId(), a.productName(), a.unitPriceCents(),
+                            a.stock(), a.quantity() + b.quantity()));
         }
-        
-        return items;
+        return new CartSnapshot(List.copyOf(lines.values()));
     }
 
     /**
      * 添加商品到购物车
+     * 商品已在购物车中时累加数量，不新增购物车项
      *
      * @param userId    用户 ID
      * @param productId 商品 ID
      * @param quantity  数量
-     * @return 购物车项
+     * @return 购物车项（副本）
      */
-    @Transactional
     public CartItem addItem(Long userId, Long productId, int quantity) {
         // 参数校验
         if (quantity <= 0) {
@@ -77,77 +106,155 @@ public class CartService {
         }
         
         // 查找商品并检查库存
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new BusinessException("商品不存在"));
+        Product product = findProduct(productId);
         
         if (product.getStock() < quantity) {
             throw new BusinessException("库存不足");
         }
         
-        // 获取或创建购物车
-        Cart cart = getOrCreateCart(userId);
-        
-        // 创建购物车项
-        CartItem item = new CartItem();
-        item.setCartId(cart.getId());
-        item.setProductId(productId);
-        item.setQuantity(quantity);
-        
-        return cartItemRepository.save(item);
+        return cartStore.update(userId, cart -> {
+            // 已有该商品：累加数量（合并后的数量同样不能超过库存）
+            CartItem existing = cart.findByProduct(productId);
+            if (existing != null) {
+                int merged = existing.getQuantity() + quantity;
+                if (product.getStock() < merged) {
+                    throw new BusinessException("库存不足");
+                }
+                existing.setQuantity(merged);
+                return CartStore.copyOf(existing);
+            }
+
+            // 创建购物车项
+            CartItem item = new CartItem();
+            item.setId(cartStore.nextItemId());
+            item.setCartId(cart.getCartId());
+            item.setProductId(productId);
+            item.setQuantity(quantity);
+            cart.items().put(item.getId(), item);
+            return CartStore.copyOf(item);
+        });
     }
 
     /**
      * 更新购物车项数量
      *
+     * @param userId   用户 ID
      * @param itemId   购物车项 ID
      * @param quantity 新数量
      */
-    @Transactional
-    public void updateItemQuantity(Long itemId, int quantity) {
+    public void updateItemQuantity(Long userId, Long itemId, int quantity) {
         // 参数校验
         if (quantity <= 0) {
             throw new BusinessException("数量必须大于 0");
         }
         
         // 查找购物车项
-        CartItem item = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new BusinessException("购物车项不存在"));
+        Long productId = cartStore.read(userId, cart -> findItem(cart, itemId).getProductId());
         
         // 检查库存
-        Product product = productRepository.findById(item.getProductId())
-                .orElseThrow(() -> new BusinessException("商品不存在"));
+        Product product = findProduct(productId);
         
         if (product.getStock() < quantity) {
             throw new BusinessException("库存不足");
         }
         
-        item.setQuantity(quantity);
-        cartItemRepository.save(item);
+        cartStore.update(userId, cart -> {
+            findItem(cart, itemId).setQuantity(quantity);
+            return null;
+        });
+    }
+
+    /**
+     * 批量设置购物车中商品的数量（一次请求、整体生效）
+     * 商品不在购物车中时加入，数量为 0 时移除；任一项校验失败则全部不生效
+     *
+     * @param userId 用户 ID
+     * @param lines  商品及目标数量（同一商品出现多次时以最后一次为准）
+     * @return 修改后的购物车项列表
+     */
+    public List<CartItem> updateItems(Long userId, List<UpdateCartItemsRequest.Line> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new BusinessException("修改项不能为空");
+        }
+        if (lines.size() > MAX_BATCH_LINES) {
+            throw new BusinessException("单次最多修改 " + MAX_BATCH_LINES + " 项");
+        }
+
+        // 先校验全部修改项：商品存在、数量合法、库存充足
+        Map<Long, Integer> targets = new LinkedHashMap<>();
+        for (UpdateCartItemsRequest.Line line : lines) {
+            if (line.getProductId() == null) {
+                throw new BusinessException("商品 ID 不能为空");
+            }
+            if (line.getQuantity() == null || line.getQuantity() < 0) {
+                throw new BusinessException("数量不能小于 0");
+            }
+            targets.put(line.getProductId(), line.getQuantity());
+        }
+        for (Map.Entry<Long, Integer> target : targets.entrySet()) {
+            Product product = findProduct(target.getKey());
+            if (product.getStock() < target.getValue()) {
+                throw new BusinessException(product.getName() + " 库存不足");
+            }
+        }
+
+        // 在购物车锁内一次性应用
+        cartStore.update(userId, cart -> {
+            targets.forEach((productId, quantity) -> {
+                CartItem existing = cart.findByProduct(productId);
+                if (quantity == 0) {
+                    if (existing != null) {
+                        cart.items().remove(existing.getId());
+                    }
+                } else if (existing != null) {
+                    existing.setQuantity(quantity);
+                } else {
+                    CartItem item = new CartItem();
+                    item.setId(cartStore.nextItemId());
+                    item.setCartId(cart.getCartId());
+                    item.setProductId(productId);
+                    item.setQuantity(quantity);
+                    cart.items().put(item.getId(), item);
+                }
+            });
+            return null;
+        });
+        return getActiveCartItems(userId);
     }
 
     /**
      * 移除购物车项
      *
+     * @param userId 用户 ID
      * @param itemId 购物车项 ID
      */
-    @Transactional
-    public void removeItem(Long itemId) {
-        if (!cartItemRepository.existsById(itemId)) {
-            throw new BusinessException("购物车项不存在");
-        }
-        cartItemRepository.deleteById(itemId);
+    public void removeItem(Long userId, Long itemId) {
+        cartStore.update(userId, cart -> cart.items().remove(findItem(cart, itemId).getId()));
     }
 
     /**
      * 清空用户购物车
+     * 在事务中调用时（如支付），事务提交后才清空
      *
      * @param userId 用户 ID
      */
-    @Transactional
     public void clearCart(Long userId) {
-        Cart cart = getOrCreateCart(userId);
-        cartItemRepository.deleteByCartId(cart.getId());
+        Transactions.afterCommit(() -> cartStore.update(userId, cart -> {
+            cart.items().clear();
+            return null;
+        }));
     }
-}
 
+    private Product findProduct(Long productId) {
+        return catalogCache.getById(productId, productRepository::findById)
+                .orElseThrow(() -> new BusinessException("商品不存在"));
+    }
 
+    private static CartItem findItem(CartStore.CartState cart, Long itemId) {
+        CartItem item = cart.items().get(itemId);
+        if (item == null) {
+            throw new BusinessException("购物车项不存在");
+        }
+        return item;
+    }
+}
@@ -0,0 +1,523 @@
+package com.shop.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.shop.exception.BusinessException;
+import com.shop.exception.ResourceNotFoundException;
+import com.shop.repository.ProductRepository;
+import com.shop.util.Futures;
+
+/**
+ * 图片存储服务
+ *
+ * 功能：
+ * 1. 按内容寻址保存上传的原图：文件名为内容的 SHA-256 + 扩展名，按哈希前缀分片存放，
+ *    重复上传同一图片只保存一份。扩展名按文件头识别出的格式确定（jpeg 统一为 .jpg），
+ *    无法识别时才使用原文件名的扩展名。
+ * 2. 按配置的固定宽度生成缩略图（如 name_w400.jpg），与原图存放在同一目录。
+ *    上传后异步生成；访问时若缩略图尚不存在则当场生成并写入磁盘，之后直接读取。
+ * 3. 原图宽度不超过目标宽度时直接复制原图作为该尺寸的缩略图；
+ *    无法解码或不宜缩放的格式（如 webp、svg、可能含动画的 gif）不生成缩略图，始终返回原图。
+ * 4. 定时清理没有任何商品引用的图片及其缩略图（标记-清除），每个文件删除前再查询一次引用。
+ * 5. 同时解码的原图数量受信号量限制（单张原图解码最多约 160MB 堆内存），
+ *    等待超时的请求返回 503；同一缩略图的并发请求只解码一次。
+ */
+@Service
+public class ImageService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageService.class);
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;   // 超过此像素数的原图不解码，避免占用过多内存
+    private static final String TEMP_DIR = ".tmp";
+    private static final Pattern HASHED_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,10})?");
+    private static final Pattern VARIANT_NAME = Pattern.compile("(.+)_w\\d+(\\.[^.]+)");
+
+    private final ProductRepository productRepository;
+    private final Path uploadRoot;
+    private final List<Integer> variantWidths;   // 升序排列的缩略图宽度
+    private final Duration gcGrace;
+
+    // 最近上传的文件名 -> 上传时间（含内容重复、未新建文件的上传），保护期内不清理
+    private final Map<String, Instant> recentUploads = new ConcurrentHashMap<>();
+
+    // 正在生成的缩略图，同一缩略图的并发请求共享一次生成
+    private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    // 限制同时解码的原图数量（请求线程与 @Async 线程共用）
+    private final Semaphore decodePermits;
+    private final long decodeWaitNanos;
+
+    public ImageService(
+            ProductRepository productRepository,
+            @Value("${app.upload.path}") String uploadPath,
+            @Value("${app.upload.variant-widths:200,400,800}") List<Integer> variantWidths,
+            @Value("${app.upload.gc-grace:24h}") Duration gcGrace,
+            @Value("${app.upload.variant-concurrency:2}") int variantConcurrency,
+            @Value("${app.upload.variant-wait:10s}") Duration variantWait
+    ) {
+        this.productRepository = productRepository;
+        this.decodePermits = new Semaphore(Math.max(1, variantConcurrency));
+        this.decodeWaitNanos = variantWait.toNanos();
+        this.gcGrace = gcGrace;
+        this.uploadRoot = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.variantWidths = variantWidths.stream().filter(w -> w > 0).distinct().sorted().toList();
+    }
+
+    /**
+     * 保存上传的图片（按内容寻址）
+     * 边写临时文件边计算 SHA-256，再原子移动到分片目录；内容相同的图片只保存一份，
+     * 已存在时更新其修改时间，使其重新获得清理保护期
+     *
+     * @param file 上传文件
+     * @return 保存后的文件名（内容哈希 + 扩展名）
+     */
+    public String store(MultipartFile file) throws IOException {
+        Path tempDir = uploadRoot.resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+
+        Path temp = Files.createTempFile(tempDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            String filename = HexFormat.of().formatHex(digest.digest()) + extensionOf(temp, file.getOriginalFilename());
+            Instant now = Instant.now();
+            recentUploads.put(filename, now);
+
+            Path target = pathOf(filename);
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, FileTime.from(now));
+            } else {
+                Files.createDirectories(target.getParent());
+                moveAtomically(temp, target);
+            }
+            return filename;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 异步生成全部尺寸的缩略图（上传完成后调用），失败只记录日志，访问时会再次尝试
+     *
+     * @param filename 原图文件名
+     */
+    @Async
+    public void generateVariantsAsync(String filename) {
+        for (Integer width : variantWidths) {
+            try {
+                resolve(filename, width);
+            } catch (Exception e) {
+                log.warn("Failed to generate {}px variant of {}: {}", width, filename, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取图片文件路径
+     *
+     * @param filename 原图文件名
+     * @param size     期望宽度（为空返回原图）；取不小于该值的最小配置宽度，超过最大宽度时取最大宽度
+     * @return 原图或缩略图的路径
+     */
+    public Path resolve(String filename, Integer size) throws IOException {
+        Path original = pathOf(filename);
+        if (!original.startsWith(uploadRoot) || !Files.isRegularFile(original)) {
+            throw new ResourceNotFoundException("文件不存在");
+        }
+        if (size != null && size <= 0) {
+            throw new BusinessException("图片尺寸无效");
+        }
+        if (size == null || variantWidths.isEmpty() || formatOf(filename) == null) {
+            return original;
+        }
+
+        int width = selectWidth(size);
+        Path variant = variantPath(original, width);
+        if (Files.isRegularFile(variant)) {
+            return variant;
+        }
+        return generate(original, variant, width);
+    }
+
+    /**
+     * 由文件内容决定的标签：内容哈希文件名返回哈希（缩略图附加宽度，如 abcd..._w400），
+     * 早期 UUID 文件名返回 null
+     *
+     * @param filename 原图文件名
+     * @param resolved resolve 返回的原图或缩略图路径
+     */
+    public String contentTagOf(String filename, Path resolved) {
+        if (!HASHED_NAME.matcher(filename).matches()) {
+            return null;
+        }
+        String name = resolved.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    /**
+     * 定时清理没有任何商品引用的图片（连同其缩略图）
+     * 最近上传或修改时间在保护期内的文件不清理，避免删除刚上传、商品尚未保存的图片
+     */
+    @Scheduled(fixedDelayString = "${app.upload.gc-interval:3600000}", initialDelayString = "${app.upload.gc-interval:3600000}")
+    public void collectGarbage() throws IOException {
+        if (!Files.isDirectory(uploadRoot)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(gcGrace);
+        recentUploads.values().removeIf(uploadedAt -> uploadedAt.isBefore(cutoff));
+
+        Set<String> referenced = new HashSet<>();
+        for (String imgUrl : productRepository.findAllImgUrls()) {
+            referenced.add(filenameOf(imgUrl));
+        }
+
+        List<Path> garbage;
+        try (Stream<Path> files = Files.walk(uploadRoot)) {
+            garbage = files.filter(Files::isRegularFile)
+                    .filter(file -> isGarbage(file, referenced, cutoff))
+                    .toList();
+        }
+        int deleted = 0;
+        for (Path file : garbage) {
+            // 删除前再检查一次：期间可能有相同内容的图片被重新上传，或有商品开始引用该图片
+            if (isGarbage(file, referenced, cutoff) && !isReferencedNow(file) && Files.deleteIfExists(file)) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} unreferenced image files", deleted);
+        }
+    }
+
+    // ===== 内部实现 =====
+
+    /**
+     * 文件名到磁盘路径的映射：内容哈希文件名按前两级哈希前缀分片存放（ab/cd/abcd....jpg），
+     * 其他文件名（早期的 UUID 文件）直接位于上传目录下
+     */
+    private Path pathOf(String filename) {
+        Matcher matcher = HASHED_NAME.matcher(filename);
+        if (matcher.matches()) {
+            String hash = matcher.group(1);
+            return uploadRoot.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(filename);
+        }
+        return uploadRoot.resolve(filename).normalize();
+    }
+
+    private boolean isGarbage(Path file, Set<String> referenced, Instant cutoff) {
+        try {
+            if (Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        if (isTemp(file)) {
+            return true;   // 遗留的临时文件
+        }
+        String original = originalNameOf(file);
+        return !referenced.contains(original) && !recentUploads.containsKey(original);
+    }
+
+    private boolean isReferencedNow(Path file) {
+        return !isTemp(file) && productRepository.existsByImgUrlContaining(originalNameOf(file));
+    }
+
+    private boolean isTemp(Path file) {
+        return file.startsWith(uploadRoot.resolve(TEMP_DIR));
+    }
+
+    /**
+     * 缩略图跟随原图：name_w400.jpg -> name.jpg
+     */
+    private static String originalNameOf(Path file) {
+        String name = file.getFileName().toString();
+        Matcher variant = VARIANT_NAME.matcher(name);
+        return variant.matches() ? variant.group(1) + variant.group(2) : name;
+    }
+
+    /**
+     * 从商品图片地址中取出文件名（/api/files/images/abc.jpg?size=200 -> abc.jpg）
+     */
+    private static String filenameOf(String imgUrl) {
+        String path = imgUrl;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * 确定保存的扩展名：优先按文件头识别的格式，同一格式只对应一个扩展名（相同内容不会因 .jpeg/.jpg 存成两份）；
+     * 无法识别时使用原文件名的扩展名（转小写，仅保留字母和数字）
+     */
+    private static String extensionOf(Path content, String originalFilename) throws IOException {
+        String detected = detectExtension(content);
+        if (detected != null) {
+            return detected;
+        }
+        if (originalFilename == null || originalFilename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        if ("jpeg".equals(extension)) {
+            extension = "jpg";
+        }
+        return extension.matches("[a-z0-9]{1,10}") ? "." + extension : "";
+    }
+
+    /**
+     * 按文件头（魔数）识别常见图片格式
+     */
+    private static String detectExtension(Path content) throws IOException {
+        byte[] header = new byte[12];
+        int read;
+        try (InputStream in = Files.newInputStream(content)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        if (read >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return ".jpg";
+        }
+        if (read >= 8 && (header[0] & 0xFF) == 0x89 && startsWith(header, 1, "PNG")) {
+            return ".png";
+        }
+        if (read >= 6 && startsWith(header, 0, "GIF8")) {
+            return ".gif";
+        }
+        if (read >= 12 && startsWith(header, 0, "RIFF") && startsWith(header, 8, "WEBP")) {
+            return ".webp";
+        }
+        if (read >= 2 && startsWith(header, 0, "BM")) {
+            return ".bmp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[offset + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int selectWidth(int size) {
+        for (Integer width : variantWidths) {
+            if (width >= size) {
+                return width;
+            }
+        }
+        return variantWidths.get(variantWidths.size() - 1);
+    }
+
+    /**
+     * 生成缩略图；同一缩略图同时只生成一次，其余请求等待同一结果
+     */
+    private Path generate(Path original, Path variant, int width) throws IOException {
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(variant, mine);
+        if (existing != null) {
+            return Futures.join(existing);
+        }
+        try {
+            Path result = Files.isRegularFile(variant) ? variant : writeVariantLimited(original, variant, width);
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(variant, mine);
+        }
+    }
+
+    /**
+     * 获取解码许可后生成缩略图；等待超时抛出 RejectedExecutionException（返回 503，不会被缓存）
+     */
+    private Path writeVariantLimited(Path original, Path variant, int width) throws IOException {
+        boolean acquired;
+        try {
+            acquired = decodePermits.tryAcquire(decodeWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待生成缩略图被中断", e);
+        }
+        if (!acquired) {
+            throw new RejectedExecutionException("缩略图生成繁忙");
+        }
+        try {
+            return writeVariant(original, variant, width);
+        } finally {
+            decodePermits.release();
+        }
+    }
+
+    /**
+     * 缩放原图并写入临时文件，再原子移动到缩略图路径
+     * 返回实际应使用的文件：无法解码时返回原图
+     */
+    private Path writeVariant(Path original, Path variant, int width) throws IOException {
+        String format = formatOf(original.getFileName().toString());
+        Path temp = variant.resolveSibling("." + variant.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            BufferedImage source;
+            try {
+                source = readIfSupported(original);
+            } catch (IIOException e) {
+                source = null;   // 文件损坏或扩展名与内容不符
+            }
+            if (source == null) {
+                return original;
+            }
+            if (source.getWidth() <= width) {
+                Files.copy(original, temp);
+            } else if (!ImageIO.write(scale(source, width, format), format, temp.toFile())) {
+                return original;
+            }
+            moveAtomically(temp, variant);
+            return variant;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 先只读取图片尺寸，像素数在上限内才完整解码
+     */
+    private static BufferedImage readIfSupported(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 逐级减半缩放到目标宽度（双线性插值），比一次性缩放质量更好
+     */
+    private static BufferedImage scale(BufferedImage source, int width, String format) {
+        boolean opaque = "jpg".equals(format) || "bmp".equals(format);
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(1, (int) Math.round((double) source.getHeight() * w / source.getWidth()));
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w > width);
+        return current;
+    }
+
+    private static Path variantPath(Path original, int width) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return original.resolveSibling(name.substring(0, dot) + "_w" + width + name.substring(dot));
+    }
+
+    /**
+     * 根据扩展名返回 ImageIO 可写的格式名，不支持缩放的格式返回 null
+     */
+    private static String formatOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        return switch (filename.substring(dot + 1).toLowerCase(Locale.ROOT)) {
+            case "jpg", "jpeg" -> "jpg";
+            case "png" -> "png";
+            case "bmp" -> "bmp";
+            default -> null;
+        };
+    }
+}
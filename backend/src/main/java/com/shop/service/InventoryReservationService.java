@@ -0,0 +1,286 @@
+package com.shop.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.shop.dto.CartSnapshot;
+import com.shop.exception.BusinessException;
+import com.shop.model.InventoryHold;
+import com.shop.repository.InventoryHoldRepository;
+import com.shop.util.Transactions;
+
+/**
+ * 库存预占服务
+ *
+ * 功能：
+ * 1. 创建待支付订单时为每种商品预占库存，预占数量保存在内存计数器中，
+ *    使用 CAS 无锁更新，下单热点路径不对 product 行加锁。
+ * 2. 预占记录同时写入 inventory_hold 表，应用启动时据此重建内存计数。
+ * 3. 支付时预占转为实际扣减（扣减由 ProductRepository.decrementStock 完成，这里只释放预占）；
+ *    预占已过期被清理的订单不能再支付。
+ * 4. 订单取消或预占过期时释放；过期预占由定时任务分批清理。
+ * 5. 定时按 inventory_hold 表重新计算内存计数，纠正回调丢失等原因造成的偏差。
+ *
+ * 内存计数只属于当前实例，仅适用于单实例部署：多个实例各自计数，合计预占可能超过库存。
+ */
+@Service
+public class InventoryReservationService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryReservationService.class);
+    private static final int SWEEP_BATCH_SIZE = 200;
+    private static final long RECONCILE_WAIT_SECONDS = 5;
+
+    private final InventoryHoldRepository holdRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration holdTtl;
+
+    // 商品 ID -> 已预占数量
+    private final ConcurrentHashMap<Long, AtomicInteger> reserved = new ConcurrentHashMap<>();
+
+    // 预占/释放在事务期间持有读锁，直到事务结束；重新计算持有写锁，此时不存在未提交的预占变更
+    private final ReentrantReadWriteLock reconcileLock = new ReentrantReadWriteLock();
+
+    public InventoryReservationService(
+            InventoryHoldRepository holdRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.inventory.hold-ttl:30m}") Duration holdTtl,
+            @Value("${app.order.pending-ttl:30m}") Duration pendingTtl
+    ) {
+        this.holdRepository = holdRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.holdTtl = holdTtl;
+        if (holdTtl.compareTo(pendingTtl) < 0) {
+            log.warn("Inventory hold TTL {} is shorter than pending order TTL {}; "
+                    + "orders whose holds expire first can no longer be paid", holdTtl, pendingTtl);
+        }
+    }
+
+    /**
+     * 启动时根据 inventory_hold 表重建内存预占计数
+     * 在全部单例创建完成后、Web 服务器开始接收请求之前执行，重建期间不会有请求写入计数
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        reserved.clear();
+        for (InventoryHoldRepository.ReservedQuantity row : holdRepository.sumQuantityByProduct()) {
+            reserved.put(row.getProductId(), new AtomicInteger(row.getQuantity().intValue()));
+        }
+    }
+
+    /**
+     * 定时按 inventory_hold 表重新计算内存预占计数
+     * 等待进行中的预占/释放事务结束后执行；等待超时则跳过本轮
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.reconcile-interval:300000}")
+    public void reconcile() {
+        Lock writeLock = reconcileLock.writeLock();
+        try {
+            if (!writeLock.tryLock(RECONCILE_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Skipped inventory reservation reconcile: in-flight reservations did not finish in {}s",
+                        RECONCILE_WAIT_SECONDS);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            Map<Long, Integer> actual = new TreeMap<>();
+            for (InventoryHoldRepository.ReservedQuantity row : holdRepository.sumQuantityByProduct()) {
+                actual.put(row.getProductId(), row.getQuantity().intValue());
+            }
+
+            int corrected = 0;
+            for (Map.Entry<Long, AtomicInteger> entry : reserved.entrySet()) {
+                int expected = actual.getOrDefault(entry.getKey(), 0);
+                if (entry.getValue().getAndSet(expected) != expected) {
+                    corrected++;
+                }
+            }
+            for (Map.Entry<Long, Integer> row : actual.entrySet()) {
+                if (reserved.putIfAbsent(row.getKey(), new AtomicInteger(row.getValue())) == null) {
+                    corrected++;
+                }
+            }
+            if (corrected > 0) {
+                log.warn("Corrected in-memory reserved quantity for {} products", corrected);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 为订单预占库存（需在事务中调用，事务回滚时自动归还内存计数）
+     *
+     * @param orderId 订单 ID
+     * @param lines   购物车快照中的商品行
+     */
+    public void reserve(Long orderId, List<CartSnapshot.Line> lines) {
+        enterMutation();
+        try {
+            reserveLocked(orderId, lines);
+        } finally {
+            exitMutationAfterCompletion();
+        }
+    }
+
+    private void reserveLocked(Long orderId, List<CartSnapshot.Line> lines) {
+        // 按商品汇总数量，并按商品 ID 排序
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, CartSnapshot.Line> products = new TreeMap<>();
+        for (CartSnapshot.Line line : lines) {
+            quantities.merge(line.productId(), line.quantity(), Integer::sum);
+            products.put(line.productId(), line);
+        }
+
+        Map<Long, Integer> acquired = new TreeMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            CartSnapshot.Line product = products.get(line.getKey());
+            if (!tryReserve(line.getKey(), line.getValue(), product.stock())) {
+                release(acquired);
+                throw new BusinessException(product.productName() + " 库存不足");
+            }
+            acquired.put(line.getKey(), line.getValue());
+        }
+        Transactions.afterRollback(() -> release(acquired));
+
+        LocalDateTime expireTime = LocalDateTime.now().plus(holdTtl);
+        List<InventoryHold> holds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : acquired.entrySet()) {
+            InventoryHold hold = new InventoryHold();
+            hold.setOrderId(orderId);
+            hold.setProductId(line.getKey());
+            hold.setQuantity(line.getValue());
+            hold.setExpireTime(expireTime);
+            holds.add(hold);
+        }
+        holdRepository.insertAll(holds);
+    }
+
+    /**
+     * 释放订单的全部预占（支付完成转为实际扣减、订单取消时调用）
+     * 内存计数在事务提交后归还
+     *
+     * @param orderId 订单 ID
+     * @return 订单是否还有预占（已过期清理或已释放时为 false）
+     */
+    public boolean releaseOrder(Long orderId) {
+        enterMutation();
+        try {
+            return releaseOrderLocked(orderId);
+        } finally {
+            exitMutationAfterCompletion();
+        }
+    }
+
+    /**
+     * 批量释放多个订单的全部预占（批量取消订单时调用，需在事务中调用）
+     * 一次加锁查询、一条批量删除，内存计数在事务提交后归还
+     *
+     * @param orderIds 订单 ID
+     */
+    public void releaseOrders(Collection<Long> orderIds) {
+        enterMutation();
+        try {
+            deleteAndRelease(holdRepository.findByOrderIdIn(orderIds));
+        } finally {
+            exitMutationAfterCompletion();
+        }
+    }
+
+    private boolean releaseOrderLocked(Long orderId) {
+        return deleteAndRelease(holdRepository.findByOrderId(orderId));
+    }
+
+    private boolean deleteAndRelease(List<InventoryHold> holds) {
+        if (holds.isEmpty()) {
+            return false;
+        }
+        holdRepository.deleteAllInBatch(holds);
+
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (InventoryHold hold : holds) {
+            quantities.merge(hold.getProductId(), hold.getQuantity(), Integer::sum);
+        }
+        Transactions.afterCommit(() -> release(quantities));
+        return true;
+    }
+
+    /**
+     * 定时释放过期预占，每个订单单独一个短事务
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.sweep-interval:30000}")
+    public void releaseExpired() {
+        int released = 0;
+        List<Long> orderIds;
+        do {
+            orderIds = holdRepository.findExpiredOrderIds(LocalDateTime.now(), Limit.of(SWEEP_BATCH_SIZE));
+            for (Long orderId : orderIds) {
+                transactionTemplate.executeWithoutResult(status -> releaseOrder(orderId));
+            }
+            released += orderIds.size();
+        } while (orderIds.size() == SWEEP_BATCH_SIZE);
+
+        if (released > 0) {
+            log.info("Released expired inventory holds for {} orders", released);
+        }
+    }
+
+    // ===== 内部实现 =====
+
+    private void enterMutation() {
+        reconcileLock.readLock().lock();
+    }
+
+    /**
+     * 事务结束后释放读锁（在计数归还回调之后注册，因此晚于归还执行）
+     */
+    private void exitMutationAfterCompletion() {
+        Transactions.afterCompletion(() -> reconcileLock.readLock().unlock());
+    }
+
+    /**
+     * CAS 预占：已预占 + 本次数量不超过库存时成功
+     */
+    private boolean tryReserve(Long productId, int quantity, int stock) {
+        AtomicInteger counter = reserved.computeIfAbsent(productId, id -> new AtomicInteger());
+        while (true) {
+            int current = counter.get();
+            if (current + quantity > stock) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger counter = reserved.get(productId);
+            if (counter != null) {
+                counter.updateAndGet(current -> Math.max(0, current - quantity));
+            }
+        });
+    }
+}
@@ -1,12 +1,22 @@
 package com.shop.service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.shop.cache.ProductCatalogCache;
+import com.shop.dto.AdminOrderView;
+import com.shop.dto.CartSnapshot;
+import com.shop.dto.CursorPage;
 import com.shop.exception.BusinessException;
-import com.shop.model.CartItem;
+import com.shop.lock.ProductLockStripes;
 import com.shop.model.Order;
 import com.shop.model.OrderItem;
 import com.shop.model.Product;
@@ -15,6 +25,7 @@ import com.shop.repository.OrderItemRepository;
 import com.shop.repository.OrderRepository;
 import com.shop.repository.ProductRepository;
 import com.shop.repository.UserRepository;
+import com.shop.util.Money;
 
 @Service
 public class OrderService {
@@ -23,79 +34,98 @@ public class OrderService {
     private final CartService cartService;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductCatalogCache catalogCache;
+    private final InventoryReservationService reservationService;
+    private final ProductLockStripes productLocks;
+    private final TransactionTemplate transactionTemplate;
 
     public OrderService(
             OrderRepository orderRepository,
             OrderItemRepository orderItemRepository,
             CartService cartService,
             ProductRepository productRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            ProductCatalogCache catalogCache,
+            InventoryReservationService reservationService,
+            ProductLockStripes productLocks,
+            TransactionTemplate transactionTemplate
     ) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.cartService = cartService;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.catalogCache = catalogCache;
+        this.reservationService = reservationService;
+        this.productLocks = productLocks;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
      * 创建待支付订单（根据用户的购物车）
+     * 购物车与商品信息只读取一次，得到不可变快照，计价、库存校验、预占和订单项都基于该快照
      *
      * @param userId 用户 ID
      * @return 创建的订单
      */
     @Transactional
     public Order createPendingOrder(Long userId) {
-        // 查询购物车所有未结算商品
-        List<CartItem> items = cartService.getActiveCartItems(userId);
-        if (items.isEmpty()) {
+        // 读取购物车快照（商品信息通过一次 IN 查询加载）
+        CartSnapshot cart = cartService.checkoutSnapshot(userId);
+        if (cart.isEmpty()) {
             throw new BusinessException("购物车为空");
         }
 
-        // 计算总价格，同时验证库存
-        double total = 0.0;
-        for (CartItem item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new BusinessException("商品不存在"));
-            
-            if (product.getStock() < item.getQuantity()) {
-                throw new BusinessException(product.getName() + " 库存不足");
+        // 验证库存
+        for (CartSnapshot.Line line : cart.lines()) {
+            if (line.stock() < line.quantity()) {
+                throw new BusinessException(line.productName() + " 库存不足");
             }
-            
-            total += product.getPrice() * item.getQuantity();
         }
 
         // 创建订单
         Order order = new Order();
         order.setUserId(userId);
         order.setStatus("PENDING");
-        order.setTotalPrice(total);
+        order.setTotalPrice(cart.total());
         order = orderRepository.save(order);
 
-        // 创建订单项（从购物车复制过来）
-        for (CartItem item : items) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new BusinessException("商品不存在"));
-            
+        // 为订单预占库存（已预占 + 本单数量不能超过库存）
+        reservationService.reserve(order.getId(), cart.lines());
+
+        // 创建订单项（单价取自快照），一个 JDBC 批次写入
+        List<OrderItem> orderItems = new ArrayList<>(cart.lines().size());
+        for (CartSnapshot.Line line : cart.lines()) {
             OrderItem orderItem = new OrderItem();
             orderItem.setOrderId(order.getId());
-            orderItem.setProductId(product.getId());
-            orderItem.setQuantity(item.getQuantity());
-            orderItem.setPrice(product.getPrice());
-            orderItemRepository.save(orderItem);
+            orderItem.setProductId(line.productId());
+            orderItem.setQuantity(line.quantity());
+            orderItem.setPrice(Money.ofCents(line.unitPriceCents()));
+            orderItems.add(orderItem);
         }
+        orderItemRepository.insertAll(orderItems);
 
         return order;
     }
 
     /**
      * 支付订单并扣减库存，完成购物车结算
+     * 先按订单涉及的商品获取进程内分段锁，再在锁内执行整个支付事务，
+     * 同一热点商品的支付在进程内排队，不同商品并行
      *
      * @param orderId 订单 ID
      * @param userId  用户 ID
      */
-    @Transactional
     public void markPaidAndFulfillCart(Long orderId, Long userId) {
+        // 订单项创建后不再变化，可在事务外读取
+        List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
+        List<Long> productIds = orderItems.stream().map(OrderItem::getProductId).toList();
+
+        productLocks.runLocked(productIds, () -> transactionTemplate.executeWithoutResult(
+                status -> payInTransaction(orderId, userId, orderItems)));
+    }
+
+    private void payInTransaction(Long orderId, Long userId, List<OrderItem> orderItems) {
         // 检查订单存在性和归属
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new BusinessException("订单不存在"));
@@ -109,27 +139,27 @@ public class OrderService {
             throw new BusinessException("订单非待支付状态");
         }
 
-        // 查询订单项
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
+        // 释放该订单的预占（预占转为下面的实际扣减）；预占已过期被清理时，库存可能已被其他订单占用，拒绝支付
+        if (!reservationService.releaseOrder(orderId)) {
+            throw new BusinessException("订单已超时，请重新下单");
+        }
 
-        // 检查库存是否足够
+        // 按商品汇总扣减数量
+        Map<Long, Integer> quantities = new HashMap<>();
         for (OrderItem item : orderItems) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new BusinessException("商品不存在"));
-            
-            if (product.getStock() < item.getQuantity()) {
-                throw new BusinessException(product.getName() + " 库存不足");
-            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
 
-        // 扣减库存
-        for (OrderItem item : orderItems) {
-            Product product = productRepository.findById(item.getProductId())
+        // 批量条件扣减库存（stock >= qty 才扣减），任一商品失败则整个支付回滚
+        List<Long> failed = productRepository.decrementStock(quantities);
+        if (!failed.isEmpty()) {
+            String name = productRepository.findById(failed.get(0))
+                    .map(Product::getName)
                     .orElseThrow(() -> new BusinessException("商品不存在"));
-            
-            product.setStock(product.getStock() - item.getQuantity());
-            productRepository.save(product);
+            throw new BusinessException(name + " 库存不足");
         }
+        // 库存已变化，使这些商品及商品列表的缓存失效
+        catalogCache.invalidateProducts(quantities.keySet());
 
         // 更新订单状态为已支付
         order.setStatus("PAID");
@@ -190,26 +220,58 @@ public class OrderService {
                 .orElseThrow(() -> new BusinessException("订单不存在"));
 
         order.setStatus(status);
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+
+        // 订单取消时归还预占库存
+        if ("CANCELLED".equals(status)) {
+            reservationService.releaseOrder(orderId);
+        }
+        return saved;
     }
 
     /**
      * 后台管理员：列出全部订单（订单信息 + 用户信息）
+     * 订单与用户通过一次关联查询加载
      *
      * @return 所有订单列表
      */
     public List<Order> listAllOrders() {
-        List<Order> orders = orderRepository.findAll();
-
-        for (Order order : orders) {
-            // 加载用户信息
-            User user = userRepository.findById(order.getUserId()).orElse(null);
-            order.setUser(user);
+        List<Order> orders = new ArrayList<>();
+        for (Object[] row : orderRepository.findAllWithUser()) {
+            Order order = (Order) row[0];
+            order.setUser((User) row[1]);
 
             // 不加载订单项（保持为空或保持默认）
             order.setItems(null);
+            orders.add(order);
         }
-
         return orders;
     }
+
+    /**
+     * 后台管理员：分页查询订单（按 ID 倒序的键集分页）
+     *
+     * @param status 订单状态，为空表示不过滤
+     * @param from   创建时间下限（含），为空表示不限
+     * @param to     创建时间上限（不含），为空表示不限
+     * @param userId 下单用户 ID，为空表示不过滤
+     * @param cursor 上一页返回的 nextCursor，为空表示第一页
+     * @param size   每页条数
+     * @return 分页结果
+     */
+    public CursorPage<AdminOrderView> listOrdersPage(String status, LocalDateTime from, LocalDateTime to,
+                                                     Long userId, Long cursor, Integer size) {
+        int pageSize = CursorPage.normalizeSize(size);
+        long beforeId = cursor == null ? Long.MAX_VALUE : cursor;
+        String statusFilter = (status == null || status.isBlank()) ? null : status.trim().toUpperCase();
+
+        // 多取一条用于判断是否还有下一页
+        List<AdminOrderView> rows = orderRepository.findAdminPage(
+                beforeId, statusFilter, userId, from, to, Limit.of(pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<AdminOrderView> items = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? items.get(items.size() - 1).id() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
 }
@@ -0,0 +1,100 @@
+package com.shop.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.shop.repository.OrderRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 过期待支付订单清理任务
+ *
+ * 功能：
+ * 1. 定时查找创建时间超过 pending-ttl 仍未支付的订单。
+ * 2. 按批次（batch-size）处理，每批一个短事务，避免长时间占用 orders 表：
+ *    先锁定并批量删除这批订单的库存预占，再用一条 UPDATE 取消订单，预占计数在提交后归还。
+ * 3. 通过 Micrometer 记录取消数量（orders.expired）与每轮耗时（orders.expiry.sweep）。
+ *
+ * 预占先于订单加锁，与支付路径的加锁顺序一致。
+ */
+@Component
+public class PendingOrderSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingOrderSweeper.class);
+
+    private final OrderRepository orderRepository;
+    private final InventoryReservationService reservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration pendingTtl;
+    private final int batchSize;
+    private final Counter expiredCounter;
+    private final Timer sweepTimer;
+
+    public PendingOrderSweeper(
+            OrderRepository orderRepository,
+            InventoryReservationService reservationService,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.order.pending-ttl:30m}") Duration pendingTtl,
+            @Value("${app.order.expiry-batch-size:500}") int batchSize
+    ) {
+        this.orderRepository = orderRepository;
+        this.reservationService = reservationService;
+        this.transactionTemplate = transactionTemplate;
+        this.pendingTtl = pendingTtl;
+        this.batchSize = batchSize;
+        this.expiredCounter = Counter.builder("orders.expired")
+                .description("待支付超时被自动取消的订单数")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("orders.expiry.sweep")
+                .description("过期待支付订单清理耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定时取消超时未支付的订单
+     */
+    @Scheduled(fixedDelayString = "${app.order.expiry-sweep-interval:60000}")
+    public void cancelExpiredOrders() {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minus(pendingTtl);
+        int batches = 0;
+        int cancelled = 0;
+
+        List<Long> ids;
+        do {
+            // 查询在事务外执行，只有释放预占与批量更新处于事务中
+            ids = orderRepository.findPendingIdsCreatedBefore(cutoff, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Long> batch = ids;
+            Integer updated = transactionTemplate.execute(status -> {
+                reservationService.releaseOrders(batch);
+                return orderRepository.cancelPendingByIds(batch);
+            });
+            cancelled += updated == null ? 0 : updated;
+            batches++;
+        } while (ids.size() == batchSize);
+
+        long elapsed = System.nanoTime() - start;
+        sweepTimer.record(Duration.ofNanos(elapsed));
+        expiredCounter.increment(cancelled);
+        if (cancelled > 0) {
+            log.info("Cancelled {} expired pending orders in {} batches ({} ms)",
+                    cancelled, batches, Duration.ofNanos(elapsed).toMillis());
+        }
+    }
+}
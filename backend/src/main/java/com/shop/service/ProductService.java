@@ -1,29 +1,53 @@
 package com.shop.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.shop.cache.ProductCatalogCache;
+import com.shop.dto.CursorPage;
 import com.shop.exception.BusinessException;
 import com.shop.model.Product;
 import com.shop.repository.ProductRepository;
+import com.shop.search.ProductNameIndex;
+import com.shop.util.Money;
+import com.shop.util.Transactions;
 
 @Service
 public class ProductService {
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ProductNameIndex nameIndex;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductCatalogCache catalogCache, ProductNameIndex nameIndex) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.nameIndex = nameIndex;
     }
 
     /**
-     * 查询所有商品
+     * 应用启动完成后，从商品表构建名称搜索索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        nameIndex.rebuild(productRepository::findAll);
+    }
+
+    /**
+     * 查询所有商品（读穿缓存）
      *
      * @return 商品列表
      */
     public List<Product> listAll() {
-        return productRepository.findAll();
+        return catalogCache.getAll(productRepository::findAll);
     }
 
     /**
@@ -35,7 +59,11 @@ public class ProductService {
     @Transactional
     public Product create(Product product) {
         validateProduct(product);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCache.invalidateAll();
+        // 事务提交后再更新索引，避免索引领先于数据库
+        Transactions.afterCommit(() -> nameIndex.put(saved));
+        return saved;
     }
 
     /**
@@ -54,7 +82,10 @@ public class ProductService {
         
         validateProduct(product);
         product.setId(id);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCache.invalidateAll();
+        Transactions.afterCommit(() -> nameIndex.put(saved));
+        return saved;
     }
 
     /**
@@ -68,10 +99,13 @@ public class ProductService {
             throw new BusinessException("商品不存在");
         }
         productRepository.deleteById(id);
+        catalogCache.invalidateAll();
+        Transactions.afterCommit(() -> nameIndex.remove(id));
     }
 
     /**
      * 搜索商品
+     * 优先使用内存 n-gram 索引，结果按相关度排序；索引尚未构建完成时回退到数据库 LIKE 查询
      *
      * @param query 搜索关键词
      * @return 匹配的商品列表
@@ -80,7 +114,58 @@ public class ProductService {
         if (query == null || query.trim().isEmpty()) {
             return listAll();
         }
-        return productRepository.findByNameContainingIgnoreCase(query.trim());
+        if (!nameIndex.isReady()) {
+            return productRepository.findByNameContainingIgnoreCase(query.trim());
+        }
+        return catalogCache.search(query.trim(), q -> loadInOrder(nameIndex.search(q)));
+    }
+
+    /**
+     * 键集分页查询商品（按 ID 升序）
+     *
+     * @param cursor 上一页返回的 nextCursor，为空表示第一页
+     * @param size   每页条数，为空时使用默认值，超过上限时截断
+     * @return 分页结果
+     */
+    public CursorPage<Product> listPage(Long cursor, Integer size) {
+        return searchPage(null, cursor, size);
+    }
+
+    /**
+     * 键集分页搜索商品（按 ID 升序）
+     *
+     * @param query  搜索关键词，为空时等同于 listPage
+     * @param cursor 上一页返回的 nextCursor，为空表示第一页
+     * @param size   每页条数，为空时使用默认值，超过上限时截断
+     * @return 分页结果
+     */
+    public CursorPage<Product> searchPage(String query, Long cursor, Integer size) {
+        String keyword = (query == null || query.trim().isEmpty()) ? null : query.trim();
+        long afterId = cursor == null ? 0L : cursor;
+        int pageSize = CursorPage.normalizeSize(size);
+
+        // 多取一条用于判断是否还有下一页
+        Limit limit = Limit.of(pageSize + 1);
+        List<Product> rows = catalogCache.page(keyword, afterId, pageSize + 1, () -> {
+            if (keyword == null) {
+                return productRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit);
+            }
+            if (!nameIndex.isReady()) {
+                return productRepository.findByIdGreaterThanAndNameContainingIgnoreCaseOrderByIdAsc(afterId, keyword, limit);
+            }
+            // 索引命中的 ID 按升序取游标之后的一段
+            List<Long> ids = nameIndex.search(keyword).stream()
+                    .filter(productId -> productId > afterId)
+                    .sorted()
+                    .limit(limit.max())
+                    .toList();
+            return loadInOrder(ids);
+        });
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Product> items = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? items.get(items.size() - 1).getId() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
     }
 
     /**
@@ -90,10 +175,25 @@ public class ProductService {
      * @return 商品对象
      */
     public Product findById(Long id) {
-        return productRepository.findById(id)
+        return catalogCache.getById(id, productRepository::findById)
                 .orElseThrow(() -> new BusinessException("商品不存在"));
     }
 
+    /**
+     * 按给定 ID 顺序批量加载商品（一次 IN 查询）
+     *
+     * @param ids 商品 ID 列表
+     * @return 与 ids 顺序一致的商品列表，已删除的商品被跳过
+     */
+    private List<Product> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(products::get).filter(Objects::nonNull).toList();
+    }
+
     /**
      * 校验商品信息
      *
@@ -103,9 +203,13 @@ public class ProductService {
         if (product.getName() == null || product.getName().trim().isEmpty()) {
             throw new BusinessException("商品名称不能为空");
         }
-        if (product.getPrice() == null || product.getPrice() < 0) {
+        if (product.getPrice() == null || product.getPrice().signum() < 0) {
             throw new BusinessException("商品价格不能为空或负数");
         }
+        if (!Money.hasValidScale(product.getPrice())) {
+            throw new BusinessException("商品价格最多保留两位小数");
+        }
+        product.setPrice(product.getPrice().setScale(Money.SCALE));
         if (product.getStock() == null || product.getStock() < 0) {
             throw new BusinessException("商品库存不能为空或负数");
         }
@@ -6,6 +6,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import com.shop.cache.UserPrincipalCache;
+import com.shop.dto.UserPrincipal;
 import com.shop.exception.BusinessException;
 import com.shop.model.User;
 import com.shop.repository.UserRepository;
@@ -15,10 +17,12 @@ import com.shop.util.PasswordUtil;
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordUtil passwordUtil;
+    private final UserPrincipalCache principalCache;
 
-    public UserService(UserRepository userRepository, PasswordUtil passwordUtil) {
+    public UserService(UserRepository userRepository, PasswordUtil passwordUtil, UserPrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.passwordUtil = passwordUtil;
+        this.principalCache = principalCache;
     }
 
     /**
@@ -62,7 +66,15 @@ public class UserService {
         }
         
         return userRepository.findByUsername(username)
-                .filter(user -> passwordUtil.verifyPassword(rawPassword, user.getPassword()));
+                .filter(user -> passwordUtil.verifyPassword(rawPassword, user.getPassword()))
+                .map(user -> {
+                    // 加密强度低于当前配置时，用新强度重新加密并保存
+                    if (passwordUtil.needsRehash(user.getPassword())) {
+                        user.setPassword(passwordUtil.hashPassword(rawPassword));
+                        return userRepository.save(user);
+                    }
+                    return user;
+                });
     }
 
     /**
@@ -95,6 +107,30 @@ public class UserService {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new BusinessException("用户不存在"));
     }
-}
 
+    /**
+     * 解析用户身份（ID、用户名、角色），优先读取缓存
+     *
+     * @param username 用户名
+     * @return 用户身份，用户不存在时为空
+     */
+    public Optional<UserPrincipal> resolvePrincipal(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        return principalCache.get(username, name -> userRepository.findByUsername(name)
+                .map(user -> new UserPrincipal(user.getId(), user.getUsername(), user.getRole())));
+    }
 
+    /**
+     * 删除用户，并移除其身份缓存
+     *
+     * @param userId 用户 ID
+     */
+    @Transactional
+    public void deleteById(Long userId) {
+        User user = findById(userId);
+        userRepository.delete(user);
+        principalCache.evict(user.getUsername());
+    }
+}
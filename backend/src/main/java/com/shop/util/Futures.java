@@ -0,0 +1,41 @@
+package com.shop.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * CompletableFuture 工具类
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * 等待结果，并把失败原因还原为原始异常
+     * 非受检异常和 Error 原样抛出，IOException 包装为 UncheckedIOException，其他受检异常保留 CompletionException。
+     * 用于多个线程等待同一次执行（合并并发请求）的场景，等待方与执行方看到相同的异常。
+     *
+     * @param future 进行中或已完成的任务
+     * @return 任务结果
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            if (cause instanceof IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+            throw e;
+        }
+    }
+}
@@ -1,29 +1,70 @@
 package com.shop.util;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
 /**
  * JWT 工具类
  * 提供 JWT 生成和解析功能
+ *
+ * 签名密钥和解析器在启动时构建一次并复用。
+ * 可选地缓存已验证的 token（以 token 的 SHA-256 摘要为键，随 token 过期而失效），
+ * 同一客户端的后续请求无需再次验签。
  */
 @Component
 public class JwtUtil {
 
-    @Value("${app.security.jwt.secret}")
-    private String jwtSecret;
+    private final long jwtExpiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Cache<String, TokenClaims> verifiedTokens;   // 为 null 表示未启用缓存
+
+    public JwtUtil(
+            @Value("${app.security.jwt.secret}") String jwtSecret,
+            @Value("${app.security.jwt.expiration:86400000}") long jwtExpiration,
+            @Value("${app.security.jwt.cache.enabled:true}") boolean cacheEnabled,
+            @Value("${app.security.jwt.cache.max-size:10000}") long cacheMaxSize
+    ) {
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokens = cacheEnabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(cacheMaxSize)
+                        .expireAfter(new TokenExpiry())
+                        .build()
+                : null;
+    }
 
-    @Value("${app.security.jwt.expiration:86400000}")
-    private long jwtExpiration;
+    /**
+     * 已验证 token 中的声明信息
+     *
+     * @param username  用户名
+     * @param role      角色
+     * @param expiresAt 过期时间（毫秒时间戳）
+     */
+    public record TokenClaims(String username, String role, long expiresAt) {
+    }
 
     /**
      * 生成 JWT token
@@ -33,13 +74,12 @@ public class JwtUtil {
      * @return JWT token 字符串
      */
     public String generateToken(String username, String role) {
-        SecretKey key = getSigningKey();
         return Jwts.builder()
                 .setSubject(username)
                 .claim("role", role)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(key)
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -50,21 +90,29 @@ public class JwtUtil {
      * @return Claims 对象
      */
     public Claims parseToken(String token) {
-        SecretKey key = getSigningKey();
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
-     * 获取签名密钥
+     * 验证 token 并一次性取出用户名、角色和过期时间
+     * 命中缓存时跳过验签；验证失败时抛出 JwtException
      *
-     * @return SecretKey
+     * @param token JWT token
+     * @return 声明信息
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    public TokenClaims verify(String token) {
+        if (verifiedTokens == null) {
+            return toTokenClaims(parseToken(token));
+        }
+
+        String key = digest(token);
+        TokenClaims cached = verifiedTokens.getIfPresent(key);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+        TokenClaims claims = toTokenClaims(parseToken(token));
+        verifiedTokens.put(key, claims);
+        return claims;
     }
 
     /**
@@ -74,7 +122,7 @@ public class JwtUtil {
      * @return 用户名
      */
     public String extractUsername(String token) {
-        return parseToken(token).getSubject();
+        return verify(token).username();
     }
 
     /**
@@ -84,7 +132,7 @@ public class JwtUtil {
      * @return 角色
      */
     public String extractRole(String token) {
-        return (String) parseToken(token).get("role");
+        return verify(token).role();
     }
 
     /**
@@ -95,10 +143,50 @@ public class JwtUtil {
      */
     public boolean isTokenValid(String token) {
         try {
-            Claims claims = parseToken(token);
-            return !claims.getExpiration().before(new Date());
+            return verify(token).expiresAt() > System.currentTimeMillis();
         } catch (Exception e) {
             return false;
         }
     }
+
+    private static TokenClaims toTokenClaims(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return new TokenClaims(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                expiration == null ? Long.MAX_VALUE : expiration.getTime());
+    }
+
+    /**
+     * 计算 token 的 SHA-256 摘要，避免在内存中以明文保存 token
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 缓存条目在 token 过期时失效
+     */
+    private static final class TokenExpiry implements Expiry<String, TokenClaims> {
+        @Override
+        public long expireAfterCreate(String key, TokenClaims value, long currentTime) {
+            long remainingMillis = value.expiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenClaims value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenClaims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
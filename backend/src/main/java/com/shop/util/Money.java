@@ -0,0 +1,46 @@
+package com.shop.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额工具类
+ *
+ * 金额在实体与数据库中统一为两位小数的 BigDecimal（DECIMAL(12,2)），JSON 中仍序列化为数字；
+ * 需要大量累加时（如计算订单总价）先换算成以分为单位的 long，避免装箱和浮点误差。
+ */
+public final class Money {
+
+    public static final int SCALE = 2;                  // 保留两位小数（分）
+    public static final int PRECISION = 12;             // 数据库列总位数
+
+    private Money() {
+    }
+
+    /**
+     * 金额转换为分（金额必须已经是两位以内小数）
+     *
+     * @param amount 金额
+     * @return 以分为单位的金额
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * 分转换为两位小数的金额
+     *
+     * @param cents 以分为单位的金额
+     * @return 金额
+     */
+    public static BigDecimal ofCents(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * 是否最多两位小数
+     */
+    public static boolean hasValidScale(BigDecimal amount) {
+        return amount.stripTrailingZeros().scale() <= SCALE;
+    }
+}
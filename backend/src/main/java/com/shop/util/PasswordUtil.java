@@ -1,19 +1,81 @@
 package com.shop.util;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import at.favre.lib.crypto.bcrypt.BCrypt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 
 /**
  * 密码工具类
  * 提供密码加密和验证功能
+ *
+ * BCrypt 计算在专用的有界线程池中执行：线程数和排队数都有上限，
+ * 队列满时立即抛出 RejectedExecutionException（快速失败），避免登录高峰占满请求线程。
+ * 排队耗时与计算耗时以直方图形式记录到 Micrometer（password.queue.wait / password.hash / password.verify）。
  */
 @Component
 public class PasswordUtil {
 
-    private static final int BCRYPT_COST = 12;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordUtil(
+            @Value("${app.security.password-encoder-strength:12}") int strength,
+            @Value("${app.security.password-pool.size:0}") int poolSize,
+            @Value("${app.security.password-pool.queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry
+    ) {
+        this.strength = strength;
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("password.hash")
+                .description("BCrypt 加密耗时")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("password.verify")
+                .description("BCrypt 校验耗时")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("password.queue.wait")
+                .description("密码任务排队耗时")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.rejected")
+                .description("队列已满被拒绝的密码任务数")
+                .register(meterRegistry);
+        Gauge.builder("password.queue.size", executor, e -> e.getQueue().size())
+                .description("排队中的密码任务数")
+                .register(meterRegistry);
+    }
 
     /**
      * 加密密码
@@ -22,7 +84,7 @@ public class PasswordUtil {
      * @return 加密后的密码
      */
     public String hashPassword(String rawPassword) {
-        return BCrypt.withDefaults().hashToString(BCRYPT_COST, rawPassword.toCharArray());
+        return submit(hashTimer, () -> BCrypt.withDefaults().hashToString(strength, rawPassword.toCharArray()));
     }
 
     /**
@@ -33,9 +95,62 @@ public class PasswordUtil {
      * @return true 如果密码匹配
      */
     public boolean verifyPassword(String rawPassword, String hashedPassword) {
-        return BCrypt.verifyer()
+        return submit(verifyTimer, () -> BCrypt.verifyer()
                 .verify(rawPassword.getBytes(StandardCharsets.UTF_8),
                         hashedPassword.getBytes(StandardCharsets.UTF_8))
-                .verified;
+                .verified);
+    }
+
+    /**
+     * 判断密码哈希的加密强度是否低于当前配置（需要重新加密）
+     * 只升级不降级：配置调低后，已有的高强度哈希保持不变
+     *
+     * @param hashedPassword 加密后的密码，格式如 $2a$12$...
+     * @return true 如果需要重新加密
+     */
+    public boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return true;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6)) < strength;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 提交到密码线程池并等待结果；队列已满时直接抛出 RejectedExecutionException
+     */
+    private <T> T submit(Timer timer, Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("密码处理被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 }
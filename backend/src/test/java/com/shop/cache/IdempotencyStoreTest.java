@@ -0,0 +1,62 @@
+package com.shop.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 幂等键存储测试
+ */
+class IdempotencyStoreTest {
+
+    /**
+     * 结果缓存容量被其他键占满时，执行中的键仍然合并到同一次执行
+     */
+    @Test
+    void inFlightEntrySurvivesEviction() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(1, Duration.ofHours(1), new SimpleMeterRegistry());
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> store.execute("pay", "k", 1L, () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "paid";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 其他键写满并反复淘汰结果缓存
+        for (int i = 0; i < 100; i++) {
+            String key = "other-" + i;
+            store.execute("pay", key, 1L, () -> key);
+        }
+
+        CompletableFuture<String> retry = CompletableFuture.supplyAsync(() -> store.execute("pay", "k", 1L, () -> {
+            executions.incrementAndGet();
+            return "paid-again";
+        }));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("paid");
+        assertThat(retry.get(5, TimeUnit.SECONDS)).isEqualTo("paid");
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
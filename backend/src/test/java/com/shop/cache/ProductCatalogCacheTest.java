@@ -0,0 +1,46 @@
+package com.shop.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.shop.model.Product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 商品目录缓存测试
+ */
+class ProductCatalogCacheTest {
+
+    private final ProductCatalogCache cache = new ProductCatalogCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    /**
+     * 修改加载时传入的对象或读取返回的对象，都不会改变缓存内容
+     */
+    @Test
+    void callersCannotMutateCachedProducts() {
+        Product loaded = product(1L, 10);
+        cache.getById(1L, id -> Optional.of(loaded)).orElseThrow().setStock(0);
+        loaded.setStock(3);
+
+        assertThat(cache.getById(1L, id -> Optional.empty()).orElseThrow().getStock()).isEqualTo(10);
+
+        cache.getAll(() -> List.of(product(2L, 5))).get(0).setName("changed");
+        assertThat(cache.getAll(List::of).get(0).getName()).isEqualTo("product-2");
+    }
+
+    private static Product product(Long id, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("product-" + id);
+        product.setPrice(new BigDecimal("1.00"));
+        product.setStock(stock);
+        return product;
+    }
+}
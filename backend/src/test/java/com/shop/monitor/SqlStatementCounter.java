@@ -0,0 +1,20 @@
+package com.shop.monitor;
+
+/**
+ * 测试辅助：统计一段代码在当前线程执行的 SQL 语句数（经 StatementCountingDataSource 采集）
+ */
+public final class SqlStatementCounter {
+
+    private SqlStatementCounter() {
+    }
+
+    public static int count(Runnable action) {
+        RequestSqlStats stats = RequestSqlStats.begin();
+        try {
+            action.run();
+        } finally {
+            RequestSqlStats.end();
+        }
+        return stats.getStatements();
+    }
+}
@@ -0,0 +1,43 @@
+package com.shop.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.shop.model.Product;
+
+/**
+ * 商品名称索引测试
+ */
+class ProductNameIndexTest {
+
+    /**
+     * 重建加载快照期间提交的新增、改名、删除都保留在重建后的索引中
+     */
+    @Test
+    void changesDuringRebuildAreNotLost() {
+        ProductNameIndex index = new ProductNameIndex();
+
+        index.rebuild(() -> {
+            // 快照读取之后才提交的修改
+            index.put(product(3L, "蓝牙耳机"));
+            index.put(product(1L, "机械键盘"));
+            index.remove(2L);
+            return List.of(product(1L, "薄膜键盘"), product(2L, "无线耳机"));
+        });
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("耳机")).containsExactly(3L);
+        assertThat(index.search("键盘")).containsExactly(1L);
+        assertThat(index.search("薄膜")).isEmpty();
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        return product;
+    }
+}
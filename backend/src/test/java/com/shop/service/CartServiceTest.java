@@ -0,0 +1,103 @@
+package com.shop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.shop.model.Cart;
+import com.shop.model.CartItem;
+import com.shop.model.Product;
+import com.shop.repository.CartItemRepository;
+import com.shop.repository.CartRepository;
+import com.shop.repository.ProductRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * 购物车查询次数回归测试：读取购物车的 SQL 语句数不随购物车行数增长
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void activeCartItemsUseConstantNumberOfStatements() {
+        long smallUser = seedCart(101L, 1);
+        long largeUser = seedCart(140L, 40);
+
+        // 首次读取：从数据库加载购物车 + 一次批量加载商品
+        long smallCold = countStatements(() -> assertThat(cartService.getActiveCartItems(smallUser)).hasSize(1));
+        long largeCold = countStatements(() -> assertThat(cartService.getActiveCartItems(largeUser)).hasSize(40));
+        assertThat(largeCold).isEqualTo(smallCold);
+
+        // 再次读取：购物车已在内存中，只剩商品的批量加载
+        long smallWarm = countStatements(() -> cartService.getActiveCartItems(smallUser));
+        long largeWarm = countStatements(() -> cartService.getActiveCartItems(largeUser));
+        assertThat(largeWarm).isEqualTo(smallWarm).isEqualTo(1);
+
+        // 商品信息已填充
+        List<CartItem> items = cartService.getActiveCartItems(largeUser);
+        assertThat(items).allSatisfy(item -> assertThat(item.getProduct()).isNotNull());
+    }
+
+    /**
+     * 直接写入数据库，构造包含 lines 种商品的购物车
+     */
+    private long seedCart(long userId, int lines) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        cart = cartRepository.save(cart);
+
+        for (int i = 0; i < lines; i++) {
+            Product product = new Product();
+            product.setName("cart-test-" + userId + "-" + i);
+            product.setPrice(new BigDecimal("9.90"));
+            product.setStock(100);
+            product = productRepository.save(product);
+
+            CartItem item = new CartItem();
+            item.setCartId(cart.getId());
+            item.setProductId(product.getId());
+            item.setQuantity(1);
+            cartItemRepository.save(item);
+        }
+        return userId;
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
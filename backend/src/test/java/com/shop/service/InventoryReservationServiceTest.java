@@ -0,0 +1,105 @@
+package com.shop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.shop.dto.UpdateCartItemsRequest;
+import com.shop.exception.BusinessException;
+import com.shop.model.InventoryHold;
+import com.shop.model.Order;
+import com.shop.model.Product;
+import com.shop.repository.InventoryHoldRepository;
+import com.shop.repository.ProductRepository;
+
+/**
+ * 库存预占服务测试
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryReservationServiceTest {
+
+    @Autowired
+    private InventoryReservationService reservationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryHoldRepository holdRepository;
+
+    /**
+     * 预占占满库存 -> 过期清理 -> 其他用户可以重新预占
+     */
+    @Test
+    void expiredHoldCanBeReservedAgain() {
+        Product product = saveProduct("reserve-expire", 2);
+        Order first = checkout(8001L, product, 2);
+
+        assertThatThrownBy(() -> checkout(8002L, product, 1))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage(product.getName() + " 库存不足");
+
+        holdsOf(first.getId()).forEach(hold -> {
+            hold.setExpireTime(LocalDateTime.now().minusMinutes(1));
+            holdRepository.save(hold);
+        });
+        reservationService.releaseExpired();
+        assertThat(holdsOf(first.getId())).isEmpty();
+
+        Order second = checkout(8002L, product, 2);
+        assertThat(holdsOf(second.getId())).hasSize(1);
+    }
+
+    /**
+     * 预占记录被删除而内存计数未归还时，重新计算后计数与表一致
+     */
+    @Test
+    void reconcileRecomputesCountersFromHolds() {
+        Product product = saveProduct("reserve-reconcile", 2);
+        Order first = checkout(8101L, product, 2);
+
+        // 绕过服务直接删除预占记录，模拟内存计数未归还
+        holdRepository.deleteAll(holdsOf(first.getId()));
+        assertThatThrownBy(() -> checkout(8102L, product, 1))
+                .isInstanceOf(BusinessException.class);
+
+        reservationService.reconcile();
+
+        Order second = checkout(8102L, product, 2);
+        assertThat(holdsOf(second.getId())).hasSize(1);
+    }
+
+    private Order checkout(Long userId, Product product, int quantity) {
+        cartService.updateItems(userId, List.of(new UpdateCartItemsRequest.Line(product.getId(), quantity)));
+        return orderService.createPendingOrder(userId);
+    }
+
+    private List<InventoryHold> holdsOf(Long orderId) {
+        return holdRepository.findAll().stream()
+                .filter(hold -> hold.getOrderId().equals(orderId))
+                .toList();
+    }
+
+    private Product saveProduct(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("9.90"));
+        product.setStock(stock);
+        return productRepository.save(product);
+    }
+}
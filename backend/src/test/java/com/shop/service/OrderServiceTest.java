@@ -0,0 +1,209 @@
+package com.shop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.shop.dto.UpdateCartItemsRequest;
+import com.shop.exception.BusinessException;
+import com.shop.model.InventoryHold;
+import com.shop.model.Order;
+import com.shop.model.OrderItem;
+import com.shop.model.Product;
+import com.shop.monitor.SqlStatementCounter;
+import com.shop.repository.InventoryHoldRepository;
+import com.shop.repository.OrderItemRepository;
+import com.shop.repository.OrderRepository;
+import com.shop.repository.ProductRepository;
+
+/**
+ * 订单服务测试
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private InventoryHoldRepository holdRepository;
+
+    @Autowired
+    private InventoryReservationService reservationService;
+
+    /**
+     * N 个线程同时支付库存为 K 的商品：恰好 K 笔成功，其余失败于库存不足，库存不为负
+     */
+    @Test
+    void concurrentPaymentsNeverOversell() throws Exception {
+        final int stock = 5;
+        final int buyers = 32;
+
+        Product product = saveProduct("pay-contention", stock);
+
+        // 直接写入待支付订单和预占记录（绕过内存预占计数），让全部订单在支付阶段争抢库存
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            orders.add(savePendingOrder(5000L + i, product, 1));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger paid = new AtomicInteger();
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        try {
+            for (Order order : orders) {
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.markPaidAndFulfillCart(order.getId(), order.getUserId());
+                        paid.incrementAndGet();
+                    } catch (BusinessException e) {
+                        failures.add(e.getMessage());
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(paid.get()).isEqualTo(stock);
+        assertThat(failures).hasSize(buyers - stock)
+                .allSatisfy(message -> assertThat(message).isEqualTo(product.getName() + " 库存不足"));
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isZero();
+
+        long paidOrders = orders.stream()
+                .map(order -> orderRepository.findById(order.getId()).orElseThrow().getStatus())
+                .filter("PAID"::equals)
+                .count();
+        assertThat(paidOrders).isEqualTo(stock);
+    }
+
+    /**
+     * 预占过期被清理后，订单不能再支付，库存不变
+     */
+    @Test
+    void paymentRejectedAfterHoldExpired() {
+        Long userId = 7001L;
+        Product product = saveProduct("hold-expired", 3);
+        cartService.updateItems(userId, List.of(new UpdateCartItemsRequest.Line(product.getId(), 2)));
+        Order order = orderService.createPendingOrder(userId);
+
+        expireHolds(order.getId());
+        reservationService.releaseExpired();
+
+        assertThatThrownBy(() -> orderService.markPaidAndFulfillCart(order.getId(), userId))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("订单已超时，请重新下单");
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(3);
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo("PENDING");
+    }
+
+    /**
+     * 下单的 SQL 语句数与购物车行数无关（1、10、100 行相同）
+     */
+    @Test
+    void checkoutUsesConstantNumberOfStatements() {
+        int one = checkoutStatements(6001L, 1);
+        int ten = checkoutStatements(6010L, 10);
+        int hundred = checkoutStatements(6100L, 100);
+
+        assertThat(ten).isEqualTo(one);
+        assertThat(hundred).isEqualTo(one);
+    }
+
+    /**
+     * 构造 lines 行的购物车（购物车已加载到内存），统计一次下单执行的 SQL 语句数
+     */
+    private int checkoutStatements(Long userId, int lines) {
+        List<UpdateCartItemsRequest.Line> cart = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            Product product = saveProduct("checkout-" + userId + "-" + i, 1000);
+            cart.add(new UpdateCartItemsRequest.Line(product.getId(), 2));
+        }
+        cartService.updateItems(userId, cart);
+
+        Order[] created = new Order[1];
+        int statements = SqlStatementCounter.count(() -> created[0] = orderService.createPendingOrder(userId));
+
+        assertThat(orderItemRepository.findByOrderId(created[0].getId())).hasSize(lines);
+        assertThat(created[0].getTotalPrice()).isEqualByComparingTo(new BigDecimal("39.80").multiply(BigDecimal.valueOf(lines)));
+        return statements;
+    }
+
+    private Product saveProduct(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("19.90"));
+        product.setStock(stock);
+        return productRepository.save(product);
+    }
+
+    private Order savePendingOrder(Long userId, Product product, int quantity) {
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setStatus("PENDING");
+        order.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        order = orderRepository.save(order);
+
+        OrderItem item = new OrderItem();
+        item.setOrderId(order.getId());
+        item.setProductId(product.getId());
+        item.setQuantity(quantity);
+        item.setPrice(product.getPrice());
+        orderItemRepository.insertAll(List.of(item));
+
+        InventoryHold hold = new InventoryHold();
+        hold.setOrderId(order.getId());
+        hold.setProductId(product.getId());
+        hold.setQuantity(quantity);
+        hold.setExpireTime(LocalDateTime.now().plusHours(1));
+        holdRepository.insertAll(List.of(hold));
+        return order;
+    }
+
+    /**
+     * 将订单的预占记录改为已过期
+     */
+    private void expireHolds(Long orderId) {
+        List<InventoryHold> holds = holdRepository.findAll().stream()
+                .filter(hold -> hold.getOrderId().equals(orderId))
+                .toList();
+        holds.forEach(hold -> hold.setExpireTime(LocalDateTime.now().minusMinutes(1)));
+        holdRepository.saveAll(holds);
+    }
+}
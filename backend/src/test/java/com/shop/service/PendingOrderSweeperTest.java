@@ -0,0 +1,74 @@
+package com.shop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.shop.dto.UpdateCartItemsRequest;
+import com.shop.model.Order;
+import com.shop.model.Product;
+import com.shop.repository.InventoryHoldRepository;
+import com.shop.repository.OrderRepository;
+import com.shop.repository.ProductRepository;
+
+/**
+ * 过期待支付订单清理测试
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PendingOrderSweeperTest {
+
+    @Autowired
+    private PendingOrderSweeper sweeper;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryHoldRepository holdRepository;
+
+    /**
+     * 超时订单被取消时同时释放预占，库存可以立即被其他订单预占
+     */
+    @Test
+    void cancellingExpiredOrderReleasesHolds() {
+        Product product = new Product();
+        product.setName("sweep-release");
+        product.setPrice(new BigDecimal("5.00"));
+        product.setStock(1);
+        Product saved = productRepository.save(product);
+
+        Order stale = checkout(9001L, saved);
+        stale.setCreateTime(LocalDateTime.now().minusDays(1));
+        orderRepository.save(stale);
+
+        sweeper.cancelExpiredOrders();
+
+        assertThat(orderRepository.findById(stale.getId()).orElseThrow().getStatus()).isEqualTo("CANCELLED");
+        assertThat(holdRepository.findAll()).noneMatch(hold -> hold.getOrderId().equals(stale.getId()));
+
+        Order next = checkout(9002L, saved);
+        assertThat(next.getStatus()).isEqualTo("PENDING");
+    }
+
+    private Order checkout(Long userId, Product product) {
+        cartService.updateItems(userId, List.of(new UpdateCartItemsRequest.Line(product.getId(), 1)));
+        return orderService.createPendingOrder(userId);
+    }
+}
@@ -52,7 +52,8 @@ export const cartApi = {
   get: () => apiClient.get('/api/cart'),
   add: (productId, quantity) => apiClient.post('/api/cart/add', { productId, quantity }),
   updateItem: (itemId, quantity) => apiClient.put(`/api/cart/items/${itemId}`, { quantity }),
-  removeItem: (itemId) => apiClient.delete(`/api/cart/items/${itemId}`)
+  removeItem: (itemId) => apiClient.delete(`/api/cart/items/${itemId}`),
+  updateItems: (items) => apiClient.put('/api/cart/items', { items })
 }
 
 // 订单相关 API
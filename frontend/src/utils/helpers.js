@@ -36,9 +36,10 @@ export const formatPrice = (price) => {
 /**
  * 获取图片 URL
  * @param {string} imgFileName - 图片文件名或URL
+ * @param {number} [size] - 期望宽度（像素），后端返回对应尺寸的缩略图
  * @returns {string} 图片 URL
  */
-export const getImageUrl = (imgFileName) => {
+export const getImageUrl = (imgFileName, size) => {
   if (!imgFileName) return null
   
   // 如果已经是完整URL，直接返回
@@ -46,13 +47,15 @@ export const getImageUrl = (imgFileName) => {
     return imgFileName
   }
   
+  const query = size ? `?size=${size}` : ''
+
   // 如果是相对路径（以/api/开头），拼接后端地址
   if (imgFileName.startsWith('/api/')) {
-    return `http://localhost:8080${imgFileName}`
+    return `http://localhost:8080${imgFileName}${query}`
   }
   
   // 否则假定是文件名，拼接完整路径
-  return `http://localhost:8080/api/files/images/${imgFileName}`
+  return `http://localhost:8080/api/files/images/${imgFileName}${query}`
 }
 
 /**